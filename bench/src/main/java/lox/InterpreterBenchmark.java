@@ -0,0 +1,100 @@
+package lox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterpreterBenchmark {
+
+    @Param({"fib", "loop", "strings", "dispatch", "closures"})
+    public String program;
+
+    private String source;
+    private List<Token> tokens;
+    private List<Stmt> statements;
+    private ErrorCollector errors;
+    private Interpreter interpreter;
+
+    @Setup
+    public void setup() throws IOException {
+
+        try(InputStream input = InterpreterBenchmark.class.getResourceAsStream("/corpus/" + program + ".lox")) {
+
+            if(input == null)
+                throw new IllegalStateException(String.format("Missing benchmark program '%s'.", program));
+            source = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+
+        }
+
+        errors = new ErrorCollector(new PrintWriter(System.err));
+        tokens = new Scanner(source, errors).scanTokens();
+        statements = new Parser(tokens, errors).parse();
+        interpreter = new Interpreter(
+                errors,
+                new BufferedReader(new StringReader("")),
+                new PrintWriter(Writer.nullWriter())
+        );
+        new Resolver(errors).resolve(statements);
+        if(errors.hadError())
+            throw new IllegalStateException(String.format("Benchmark program '%s' doesn't compile.", program));
+
+    }
+
+    @Benchmark
+    public List<Token> scan() {
+
+        return new Scanner(source, errors).scanTokens();
+
+    }
+
+    @Benchmark
+    public List<Stmt> parse() {
+
+        return new Parser(tokens, errors).parse();
+
+    }
+
+    @Benchmark
+    public Resolver resolve() {
+
+        Resolver resolver = new Resolver(errors);
+        resolver.resolve(statements);
+        return resolver;
+
+    }
+
+    @Benchmark
+    public Interpreter interpret() {
+
+        interpreter.interpret(statements);
+        if(errors.hadRuntimeError())
+            throw new IllegalStateException(String.format("Benchmark program '%s' failed.", program));
+        return interpreter;
+
+    }
+
+}
@@ -0,0 +1,20 @@
+package lox;
+
+public enum Allocation {
+
+    // Rough 64-bit compressed-oops sizes, including the HashMap behind instances and environments.
+    INSTANCE(72), BOUND_METHOD(24), ENVIRONMENT(152), STRING(40), FIELD(48), CLOSURE(24), ELEMENT(16), GENERATOR(64),
+    // A task's worker interpreter, frames and thread.
+    TASK(2048),
+    // An open file's channel and decoder or encoder, its buffers are charged on top.
+    FILE(512);
+
+    final long bytes;
+
+    Allocation(long bytes) {
+
+        this.bytes = bytes;
+
+    }
+
+}
@@ -0,0 +1,68 @@
+package lox;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class AllocationTracker {
+
+    // Indexed by Allocation ordinal and then by source line.
+    private final long[][] counts = new long[Allocation.values().length][256];
+    private final long[][] bytes = new long[Allocation.values().length][256];
+
+    void record(Allocation kind, int line, long size) {
+
+        int index = kind.ordinal();
+
+        if(line >= counts[index].length) {
+
+            int capacity = Math.max(line + 1, counts[index].length * 2);
+            counts[index] = Arrays.copyOf(counts[index], capacity);
+            bytes[index] = Arrays.copyOf(bytes[index], capacity);
+
+        }
+
+        counts[index][line]++;
+        bytes[index][line] += size;
+
+    }
+
+    void report(PrintStream stream, int limit) {
+
+        List<long[]> sites = new ArrayList<>();
+        long totalBytes = 0;
+        long totalCount = 0;
+
+        for(int kind = 0; kind < counts.length; kind++) {
+
+            for(int line = 0; line < counts[kind].length; line++) {
+
+                if(counts[kind][line] == 0) continue;
+                sites.add(new long[] {kind, line, counts[kind][line], bytes[kind][line]});
+                totalCount += counts[kind][line];
+                totalBytes += bytes[kind][line];
+
+            }
+
+        }
+
+        sites.sort((left, right) -> Long.compare(right[3], left[3]));
+        stream.printf("%-8s %-14s %12s %14s %8s\n", "line", "allocation", "count", "bytes", "bytes %");
+
+        for(int i = 0; i < Math.min(limit, sites.size()); i++) {
+
+            long[] site = sites.get(i);
+            stream.printf(
+                    "%-8d %-14s %12d %14d %7.2f%%\n",
+                    site[1], Allocation.values()[(int) site[0]], site[2], site[3],
+                    totalBytes == 0 ? 0 : 100.0 * site[3] / totalBytes
+            );
+
+        }
+
+        stream.printf("%d allocations, about %d bytes\n", totalCount, totalBytes);
+
+    }
+
+}
@@ -0,0 +1,108 @@
+package lox;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+class BenchmarkRunner {
+
+    private static final String[] PROGRAMS = {
+            "binary_trees", "nbody", "zoo", "string_equality", "instantiation", "fib"
+    };
+
+    private final int warmups;
+    private final int iterations;
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    BenchmarkRunner(int warmups, int iterations) {
+
+        this.warmups = warmups;
+        this.iterations = iterations;
+
+    }
+
+    void run() throws IOException {
+
+        System.out.printf(
+                "%-16s %12s %12s %10s %14s %8s\n",
+                "program", "avg ms", "min ms", "ops/s", "alloc MB/op", "GCs/op"
+        );
+
+        for(String program : PROGRAMS) {
+
+            String source = load(program);
+
+            for(int i = 0; i < warmups; i++)
+                runOnce(program, source);
+
+            long totalNanos = 0;
+            long minNanos = Long.MAX_VALUE;
+            long allocatedBefore = allocatedBytes();
+            long collectionsBefore = collections();
+
+            for(int i = 0; i < iterations; i++) {
+
+                long start = System.nanoTime();
+                runOnce(program, source);
+                long elapsed = System.nanoTime() - start;
+                totalNanos += elapsed;
+                minNanos = Math.min(minNanos, elapsed);
+
+            }
+
+            double averageMillis = totalNanos / 1e6 / iterations;
+            double allocatedMegabytes = (allocatedBytes() - allocatedBefore) / 1048576.0 / iterations;
+            double collectionsPerOp = (double) (collections() - collectionsBefore) / iterations;
+
+            System.out.printf(
+                    "%-16s %12.2f %12.2f %10.2f %14.2f %8.2f\n",
+                    program, averageMillis, minNanos / 1e6, 1000.0 / averageMillis,
+                    allocatedMegabytes, collectionsPerOp
+            );
+
+        }
+
+    }
+
+    private void runOnce(String program, String source) {
+
+        LoxContext context = new LoxContext();
+
+        if(!context.run(source))
+            throw new IllegalStateException(String.format("Benchmark '%s' failed.", program));
+
+    }
+
+    private String load(String program) throws IOException {
+
+        try(InputStream input = BenchmarkRunner.class.getResourceAsStream("benchmarks/" + program + ".lox")) {
+
+            if(input == null)
+                throw new IOException(String.format("Missing benchmark program '%s'.", program));
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+
+        }
+
+    }
+
+    private long allocatedBytes() {
+
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+
+    }
+
+    private long collections() {
+
+        long count = 0;
+
+        for(GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+            count += Math.max(collector.getCollectionCount(), 0);
+
+        return count;
+
+    }
+
+}
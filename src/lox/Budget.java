@@ -0,0 +1,136 @@
+package lox;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+// The steps and heap bytes one run may use, shared by the interpreter running it and every worker and task it
+// starts. Interpreters lease them in chunks so the shared counters are only touched every so often. Cancelling
+// the budget stops everything using it at its next step, interrupts the tasks that are still running and flushes
+// and closes the files the run left open.
+class Budget {
+
+    static final long STEP_CHUNK = 1024;
+    static final long HEAP_CHUNK = 64 << 10;
+
+    final long maxSteps;
+    final long maxHeapBytes;
+    final long timeoutNanos;
+    final long deadline;
+    private final AtomicLong steps = new AtomicLong();
+    private final AtomicLong heapBytes = new AtomicLong();
+    private final Set<Future<?>> tasks = ConcurrentHashMap.newKeySet();
+    private final Set<LoxFile> files = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled = false;
+
+    Budget(long maxSteps, long maxHeapBytes, long timeoutNanos) {
+
+        this.maxSteps = maxSteps;
+        this.maxHeapBytes = maxHeapBytes;
+        this.timeoutNanos = timeoutNanos;
+        this.deadline = System.nanoTime() + timeoutNanos;
+
+    }
+
+    long leaseSteps(long wanted) {
+
+        return lease(steps, maxSteps, wanted);
+
+    }
+
+    long leaseHeap(long wanted) {
+
+        return lease(heapBytes, maxHeapBytes, wanted);
+
+    }
+
+    // Hands back what a finished worker leased but didn't use.
+    void giveBack(long unusedSteps, long unusedHeapBytes) {
+
+        if(unusedSteps > 0) steps.addAndGet(-unusedSteps);
+        if(unusedHeapBytes > 0) heapBytes.addAndGet(-unusedHeapBytes);
+
+    }
+
+    void started(Future<?> task) {
+
+        tasks.add(task);
+        if(cancelled) task.cancel(true);
+
+    }
+
+    void finished(Future<?> task) {
+
+        tasks.remove(task);
+
+    }
+
+    void opened(LoxFile file) {
+
+        files.add(file);
+        if(cancelled) closeFiles();
+
+    }
+
+    void closed(LoxFile file) {
+
+        files.remove(file);
+
+    }
+
+    void cancel() {
+
+        cancelled = true;
+        for(Future<?> task : tasks) task.cancel(true);
+        closeFiles();
+
+    }
+
+    boolean cancelled() {
+
+        return cancelled;
+
+    }
+
+    boolean timedOut() {
+
+        return timeoutNanos > 0 && System.nanoTime() - deadline > 0;
+
+    }
+
+    private void closeFiles() {
+
+        for(LoxFile file : files) {
+
+            try {
+
+                file.close();
+
+            } catch (IOException error) {
+
+                // The run is over, there's nothing left to report a failed flush to.
+                files.remove(file);
+
+            }
+
+        }
+
+    }
+
+    // Grants as much of wanted as is left, 0 once the limit is used up.
+    private static long lease(AtomicLong used, long max, long wanted) {
+
+        for(;;) {
+
+            long current = used.get();
+            long granted = Math.min(wanted, max - current);
+            if(granted <= 0) return 0;
+            if(used.compareAndSet(current, current + granted)) return granted;
+
+        }
+
+    }
+
+}
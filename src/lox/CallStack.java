@@ -0,0 +1,105 @@
+package lox;
+
+import java.util.Arrays;
+
+class CallStack {
+
+    // Frames are plain arrays so pushing is cheap, samplers on other threads read them racily.
+    private String[] functions = new String[64];
+    private int[] lines = new int[64];
+    private int depth = 0;
+    int maxDepth = 10000;
+
+    CallStack() {
+
+        functions[0] = "<script>";
+
+    }
+
+    void push(String function) {
+
+        if(depth == maxDepth) {
+
+            RuntimeError error = new RuntimeError(lines[depth], "Stack overflow.");
+            error.trace = snapshot();
+            throw error;
+
+        }
+
+        if(depth + 1 == functions.length) {
+
+            functions = Arrays.copyOf(functions, functions.length * 2);
+            lines = Arrays.copyOf(lines, lines.length * 2);
+
+        }
+
+        depth++;
+        functions[depth] = function;
+        // Until its first statement runs a frame is attributed to the line that called it.
+        lines[depth] = lines[depth - 1];
+
+    }
+
+    void pop() {
+
+        depth--;
+
+    }
+
+    void line(int line) {
+
+        lines[depth] = line;
+
+    }
+
+    int line() {
+
+        return lines[depth];
+
+    }
+
+    int depth() {
+
+        return depth;
+
+    }
+
+    Frame[] snapshot() {
+
+        String[] functions = this.functions;
+        int[] lines = this.lines;
+        int depth = Math.min(this.depth, Math.min(functions.length, lines.length) - 1);
+        Frame[] frames = new Frame[depth + 1];
+
+        for(int i = 0; i <= depth; i++) {
+
+            frames[i] = new Frame(functions[i], lines[i]);
+
+        }
+
+        return frames;
+
+    }
+
+    static class Frame {
+
+        final String function;
+        final int line;
+
+        Frame(String function, int line) {
+
+            this.function = function;
+            this.line = line;
+
+        }
+
+        @Override
+        public String toString() {
+
+            return String.format("%s:%d", function, line);
+
+        }
+
+    }
+
+}
@@ -2,20 +2,23 @@ package lox;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
-public class Environment {
+public class Environment extends Owned {
 
     private final Map<String, Object> values = new HashMap<>();
-    final Environment enclosing;
+    Environment enclosing;
 
-    Environment() {
+    Environment(Interpreter owner) {
 
+        super(owner);
         enclosing = null;
 
     }
 
-    Environment(Environment enclosing) {
+    Environment(Environment enclosing, Interpreter owner) {
 
+        super(owner);
         this.enclosing = enclosing;
 
     }
@@ -26,6 +29,12 @@ public class Environment {
 
     }
 
+    boolean defines(String name) {
+
+        return values.containsKey(name);
+
+    }
+
     Object get(Token name) {
 
         if(values.containsKey(name.lexeme))
@@ -68,9 +77,25 @@ public class Environment {
 
     }
 
-    void assignAt(int distance, Token name, Object value) {
+    void assignAt(Interpreter interpreter, int distance, Token name, Object value) {
+
+        Environment target = ancestor(distance);
+        target.modifiedBy(interpreter);
+        target.values.put(name.lexeme, value);
+
+    }
+
+    // Lets the interpreter recycle the environment of a call once it has returned.
+    void reset(Environment enclosing) {
+
+        values.clear();
+        this.enclosing = enclosing;
+
+    }
+
+    void forEach(BiConsumer<String, Object> action) {
 
-        ancestor(distance).values.put(name.lexeme, value);
+        values.forEach(action);
 
     }
 
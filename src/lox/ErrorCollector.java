@@ -0,0 +1,125 @@
+package lox;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import jdk.jfr.FlightRecorder;
+
+public class ErrorCollector {
+
+    private static final int ECHOED_FRAMES = 20;
+
+    private final List<LoxError> errors = new ArrayList<>();
+    private final PrintWriter echo;
+    private boolean hadError = false;
+    private boolean hadRuntimeError = false;
+
+    ErrorCollector(PrintWriter echo) {
+
+        this.echo = echo;
+
+    }
+
+    void error(int line, String message) {
+
+        report(line, "", message);
+
+    }
+
+    void error(Token token, String message) {
+
+        if(token.type == TokenType.EOF)
+            report(token.line, " at end", message);
+        else
+            report(token.line, String.format(" at '%s'", token.lexeme), message);
+
+    }
+
+    void runtimeError(RuntimeError error) {
+
+        List<String> trace = new ArrayList<>();
+
+        if(error.trace != null) {
+
+            for(int i = error.trace.length - 1; i >= 0; i--)
+                trace.add(error.trace[i].toString());
+
+        }
+
+        errors.add(new LoxError(LoxError.Kind.RUNTIME, error.token.line, error.getMessage(), trace));
+
+        if(echo != null) {
+
+            echo.printf("%s \n[line %d]\n", error.getMessage(), error.token.line);
+            if(trace.size() > 1)
+                for(String frame : trace.subList(0, Math.min(trace.size(), ECHOED_FRAMES)))
+                    echo.printf("    at %s\n", frame);
+            if(trace.size() > ECHOED_FRAMES)
+                echo.printf("    ... %d more\n", trace.size() - ECHOED_FRAMES);
+            echo.flush();
+
+        }
+
+        if(FlightRecorder.isInitialized())
+            new RuntimeErrorEvent(error.getMessage(), error.token.line).commit();
+        hadRuntimeError = true;
+
+    }
+
+    void report(List<LoxError> compileErrors) {
+
+        for(LoxError error : compileErrors) {
+
+            errors.add(error);
+            if(echo != null) echo.printf("[line %d] %s\n", error.line, error.message);
+
+        }
+
+        if(echo != null) echo.flush();
+        hadError = true;
+
+    }
+
+    private void report(int line, String where, String message) {
+
+        errors.add(new LoxError(LoxError.Kind.COMPILE, line, String.format("Error%s: %s", where, message)));
+
+        if(echo != null) {
+
+            echo.printf("[line %d] Error %s: %s\n", line, where, message);
+            echo.flush();
+
+        }
+
+        hadError = true;
+
+    }
+
+    public boolean hadError() {
+
+        return hadError;
+
+    }
+
+    public boolean hadRuntimeError() {
+
+        return hadRuntimeError;
+
+    }
+
+    public List<LoxError> errors() {
+
+        return Collections.unmodifiableList(new ArrayList<>(errors));
+
+    }
+
+    void reset() {
+
+        errors.clear();
+        hadError = false;
+        hadRuntimeError = false;
+
+    }
+
+}
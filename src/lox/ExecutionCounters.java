@@ -0,0 +1,144 @@
+package lox;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+class ExecutionCounters {
+
+    // Indexed by Stmt.id, nodes keeps the statement each slot belongs to for reporting.
+    private Stmt[] nodes = new Stmt[256];
+    private long[] hits = new long[256];
+    private long[] calls = new long[256];
+    private long[] nanos = new long[256];
+    private int[] active = new int[256];
+    // Every program numbers its statements from 0, so each one registered after the first is moved past the
+    // slots already taken. A program that's run again keeps the slots it got the first time.
+    private final Set<List<Stmt>> programs = Collections.newSetFromMap(new IdentityHashMap<>());
+    private int used = 0;
+
+    void register(List<Stmt> program) {
+
+        if(programs.add(program)) number(program, used);
+
+    }
+
+    private void number(List<Stmt> statements, int base) {
+
+        for(Stmt statement : statements) {
+
+            if(statement == null) continue;
+            statement.id += base;
+            used = Math.max(used, statement.id + 1);
+            ensureCapacity(statement.id);
+            nodes[statement.id] = statement;
+
+            if(statement instanceof Stmt.Block) {
+
+                number(((Stmt.Block) statement).statements, base);
+
+            } else if(statement instanceof Stmt.If) {
+
+                Stmt.If branch = (Stmt.If) statement;
+                number(Arrays.asList(branch.thenBranch, branch.elseBranch), base);
+
+            } else if(statement instanceof Stmt.While) {
+
+                number(Arrays.asList(((Stmt.While) statement).body), base);
+
+            } else if(statement instanceof Stmt.ForIn) {
+
+                number(Arrays.asList(((Stmt.ForIn) statement).body), base);
+
+            } else if(statement instanceof Stmt.Function) {
+
+                number(((Stmt.Function) statement).body, base);
+
+            } else if(statement instanceof Stmt.Class) {
+
+                number(new ArrayList<Stmt>(((Stmt.Class) statement).methods), base);
+
+            }
+
+        }
+
+    }
+
+    void hit(Stmt statement) {
+
+        if(statement.id < hits.length) hits[statement.id]++;
+
+    }
+
+    void entered(Stmt.Function function) {
+
+        if(function.id < active.length) active[function.id]++;
+
+    }
+
+    void called(Stmt.Function function, long elapsedNanos) {
+
+        if(function.id >= calls.length) return;
+        calls[function.id]++;
+        // Only the outermost of a recursive chain of calls adds its time so totals aren't counted twice.
+        if(--active[function.id] == 0) nanos[function.id] += elapsedNanos;
+
+    }
+
+    void report(PrintStream stream) {
+
+        TreeMap<Integer, Long> lines = new TreeMap<>();
+        List<Stmt.Function> functions = new ArrayList<>();
+
+        for(int id = 0; id < nodes.length; id++) {
+
+            Stmt node = nodes[id];
+            if(node == null) continue;
+            // A line runs as often as the busiest statement on it, for loops put several nodes on one line.
+            lines.merge(node.line, hits[id], Math::max);
+            if(node instanceof Stmt.Function) functions.add((Stmt.Function) node);
+
+        }
+
+        long covered = lines.values().stream().filter(count -> count > 0).count();
+        stream.printf("%-8s %12s\n", "line", "hits");
+
+        for(Integer line : lines.keySet())
+            stream.printf("%-8d %12d\n", line, lines.get(line));
+
+        stream.printf("%d of %d lines executed\n\n", covered, lines.size());
+
+        functions.sort((left, right) -> Long.compare(nanos[right.id], nanos[left.id]));
+        stream.printf("%-32s %6s %12s %12s %12s\n", "function", "line", "calls", "total ms", "avg us");
+
+        for(Stmt.Function function : functions) {
+
+            long count = calls[function.id];
+            stream.printf(
+                    "%-32s %6d %12d %12.3f %12.3f\n",
+                    function.name.lexeme, function.line, count,
+                    nanos[function.id] / 1e6, count == 0 ? 0 : nanos[function.id] / 1e3 / count
+            );
+
+        }
+
+    }
+
+    private void ensureCapacity(int id) {
+
+        if(id < nodes.length) return;
+        int capacity = Math.max(id + 1, nodes.length * 2);
+        nodes = Arrays.copyOf(nodes, capacity);
+        hits = Arrays.copyOf(hits, capacity);
+        calls = Arrays.copyOf(calls, capacity);
+        nanos = Arrays.copyOf(nanos, capacity);
+        active = Arrays.copyOf(active, capacity);
+
+    }
+
+}
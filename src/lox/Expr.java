@@ -5,6 +5,8 @@ import java.util.List;
 
 abstract class Expr {
 
+    int depth = -1;
+
     abstract <T> T accept(Visitor<T> visitor);
 
     interface Visitor<T> {
@@ -0,0 +1,39 @@
+package lox;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+@Name("lox.FunctionCall")
+@Label("Function Call")
+@Category("Lox")
+@Description("A Lox function invocation, only calls slower than the threshold are recorded")
+@Threshold("1 ms")
+class FunctionCallEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(FunctionCallEvent.class);
+
+    @Label("Function")
+    final String function;
+
+    @Label("Line")
+    final int line;
+
+    FunctionCallEvent(String function, int line) {
+
+        this.function = function;
+        this.line = line;
+
+    }
+
+    static boolean enabled() {
+
+        return TYPE.isEnabled();
+
+    }
+
+}
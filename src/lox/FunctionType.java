@@ -2,6 +2,6 @@ package lox;
 
 public enum FunctionType {
 
-    NONE, FUNCTION, METHOD, INITIALIZER
+    NONE, FUNCTION, METHOD, INITIALIZER, GENERATOR
 
 }
@@ -0,0 +1,33 @@
+package lox;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("lox.Instantiation")
+@Label("Instantiation")
+@Category("Lox")
+@Description("A Lox class instantiation, including its initializer")
+class InstantiationEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(InstantiationEvent.class);
+
+    @Label("Class")
+    final String klass;
+
+    InstantiationEvent(String klass) {
+
+        this.klass = klass;
+
+    }
+
+    static boolean enabled() {
+
+        return TYPE.isEnabled();
+
+    }
+
+}
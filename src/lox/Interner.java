@@ -0,0 +1,104 @@
+package lox;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+class Interner {
+
+    // Weak so strings interned by a long running session can still be collected, and concurrent so contexts
+    // compiling on different threads don't queue up behind one lock. Entries of collected strings are purged lazily.
+    private static final ConcurrentHashMap<Object, Entry> strings = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<String> collected = new ReferenceQueue<>();
+
+    static String intern(String value) {
+
+        purge();
+
+        for(;;) {
+
+            Entry entry = strings.get(new Probe(value));
+            String existing = entry == null ? null : entry.get();
+            if(existing != null) return existing;
+
+            if(entry != null) {
+
+                strings.remove(entry, entry);
+                continue;
+
+            }
+
+            Entry created = new Entry(value);
+            if(strings.putIfAbsent(created, created) == null) return value;
+
+        }
+
+    }
+
+    private static void purge() {
+
+        Reference<? extends String> reference;
+        while((reference = collected.poll()) != null)
+            strings.remove(reference, reference);
+
+    }
+
+    private static final class Entry extends WeakReference<String> {
+
+        private final int hash;
+
+        Entry(String value) {
+
+            super(value, collected);
+            hash = value.hashCode();
+
+        }
+
+        @Override
+        public int hashCode() {
+
+            return hash;
+
+        }
+
+        @Override
+        public boolean equals(Object other) {
+
+            if(other == this) return true;
+            if(!(other instanceof Entry)) return false;
+            String value = get();
+            return value != null && value.equals(((Entry) other).get());
+
+        }
+
+    }
+
+    // Looks an entry up without allocating a weak reference, the map compares it against the stored entries.
+    private static final class Probe {
+
+        private final String value;
+
+        Probe(String value) {
+
+            this.value = value;
+
+        }
+
+        @Override
+        public int hashCode() {
+
+            return value.hashCode();
+
+        }
+
+        @Override
+        public boolean equals(Object other) {
+
+            return other instanceof Entry && value.equals(((Entry) other).get());
+
+        }
+
+    }
+
+}
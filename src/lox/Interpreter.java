@@ -2,19 +2,53 @@ package lox;
 
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
-    final Environment globals = new Environment();
-    private Environment environment = globals;
-    private final Map<Expr, Integer> locals = new HashMap<>();
-
-    Interpreter() {
+    private static final int ENVIRONMENT_POOL_SIZE = 256;
+
+    final Environment globals;
+    private Environment environment;
+    private final Interpreter parent;
+    final ErrorCollector errors;
+    final BufferedReader in;
+    final PrintWriter out;
+    final CallStack callStack = new CallStack();
+    ExecutionCounters counters = null;
+    AllocationTracker allocations = null;
+    InterpreterMetrics metrics = null;
+    boolean fileAccess = true;
+    private long maxSteps = Long.MAX_VALUE;
+    private long timeoutNanos = 0;
+    private long maxHeapBytes = Long.MAX_VALUE;
+    private volatile boolean interrupted = false;
+    private volatile Budget budget = new Budget(Long.MAX_VALUE, Long.MAX_VALUE, 0);
+    // Steps and heap bytes used so far, and how many of each this interpreter has leased from the budget.
+    private long steps = 0;
+    private long stepLease = 0;
+    private long heapBytes = 0;
+    private long heapLease = 0;
+    private final Environment[] environmentPool = new Environment[ENVIRONMENT_POOL_SIZE];
+    private int pooledEnvironments = 0;
+    private final StringBuilder printBuffer = new StringBuilder();
+    private char[] printChars = new char[64];
+
+    Interpreter(ErrorCollector errors, BufferedReader in, PrintWriter out) {
+
+        this.globals = new Environment(this);
+        this.environment = globals;
+        this.parent = null;
+        this.errors = errors;
+        this.in = in;
+        this.out = out;
 
         globals.define("clock", new LoxCallable() {
 
@@ -46,12 +80,11 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
             @Override
             public Object call(Interpreter interpreter, List<Object> arguments) {
 
-                InputStreamReader input = new InputStreamReader(System.in);
-                BufferedReader reader = new BufferedReader(input);
+                interpreter.out.flush();
 
                 try {
 
-                    return reader.readLine();
+                    return interpreter.in.readLine();
 
                 } catch (IOException err) {
 
@@ -77,12 +110,40 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
         });
 
+        globals.define("intern", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                Object value = arguments.get(0);
+                if(value instanceof CharSequence)
+                    return Interner.intern(value.toString());
+                return value;
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 1;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
         globals.define("printF", new LoxCallable() {
 
             @Override
             public Object call(Interpreter interpreter, List<Object> arguments) {
 
-                System.out.print(arguments.get(0));
+                interpreter.out.print(arguments.get(0));
                 return null;
 
             }
@@ -108,7 +169,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
             @Override
             public Object call(Interpreter interpreter, List<Object> arguments) {
 
-                System.out.println(arguments.get(0));
+                interpreter.out.println(arguments.get(0));
                 return null;
 
             }
@@ -129,6 +190,38 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
         });
 
+        LoxCollections.define(globals);
+        LoxParallel.define(globals);
+        LoxTasks.define(globals);
+        LoxFiles.define(globals);
+        LoxSequences.define(globals);
+        LoxMemo.define(globals);
+
+    }
+
+    // Workers run Lox functions for the parallel natives. They share the globals, streams and budget of the
+    // interpreter that started them, but have their own frames and may only change values they own.
+    Interpreter(Interpreter parent) {
+
+        this(parent, parent.globals);
+
+    }
+
+    // Spawned tasks get a copy of the globals instead, since the interpreter that started them keeps running.
+    Interpreter(Interpreter parent, Environment globals) {
+
+        this.globals = globals;
+        this.environment = globals;
+        this.parent = parent;
+        this.errors = parent.errors;
+        this.in = parent.in;
+        this.out = parent.out;
+        this.metrics = parent.metrics;
+        this.fileAccess = parent.fileAccess;
+        this.budget = parent.budget;
+        callStack.maxDepth = parent.callStack.maxDepth;
+        callStack.line(parent.callStack.line());
+
     }
 
     @Override
@@ -144,6 +237,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     public Void visitFunctionStmt(Stmt.Function stmt) {
 
         LoxFunction function = new LoxFunction(stmt, environment, false);
+        allocated(Allocation.CLOSURE, stmt.line, Allocation.CLOSURE.bytes);
         environment.define(stmt.name.lexeme, function);
         return null;
 
@@ -162,6 +256,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
                     "Can't call anything but functions and classes"
             );
         LoxCallable function = (LoxCallable) callee;
+        if(metrics != null) metrics.calls.increment();
         if(arguments.size() != function.arity())
             throw new RuntimeError(
                     expr.paren,
@@ -171,7 +266,16 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
                             arguments.size()
                     )
             );
-        return function.call(this, arguments);
+
+        try {
+
+            return function.call(this, arguments);
+
+        } catch (NativeError error) {
+
+            throw new RuntimeError(expr.paren, error.getMessage());
+
+        }
 
     }
 
@@ -181,12 +285,88 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         while (isTruthy(evaluate(stmt.condition))) {
 
             execute(stmt.body);
+            step(stmt.line);
 
         }
         return null;
 
     }
 
+    @Override
+    public Void visitYieldStmt(Stmt.Yield stmt) {
+
+        throw new RuntimeError(stmt.keyword, "Can't yield outside a generator.");
+
+    }
+
+    @Override
+    public Void visitForInStmt(Stmt.ForIn stmt) {
+
+        Iterator<Object> items;
+
+        try {
+
+            items = LoxSequence.iterator(this, evaluate(stmt.iterable));
+
+        } catch (NativeError error) {
+
+            throw new RuntimeError(stmt.name, error.getMessage());
+
+        }
+
+        try {
+
+            forEach(stmt, items);
+
+        } finally {
+
+            LoxSequence.close(items);
+
+        }
+
+        return null;
+
+    }
+
+    private void forEach(Stmt.ForIn stmt, Iterator<Object> items) {
+
+        while(true) {
+
+            Object item;
+
+            try {
+
+                if(!items.hasNext()) break;
+                item = items.next();
+
+            } catch (NativeError error) {
+
+                throw new RuntimeError(stmt.name, error.getMessage());
+
+            }
+
+            // Every iteration gets its own variable so closures made in the body keep the item they saw.
+            allocated(Allocation.ENVIRONMENT, stmt.line, Allocation.ENVIRONMENT.bytes);
+            Environment previousEnv = environment;
+
+            try {
+
+                environment = new Environment(previousEnv, this);
+                environment.define(stmt.name.lexeme, item);
+                execute(stmt.body);
+
+            } finally {
+
+                environment = previousEnv;
+
+            }
+
+            step(stmt.line);
+
+        }
+
+    }
+
     @Override
     public Object visitLogicalExpr(Expr.Logical expr) {
 
@@ -220,7 +400,8 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     @Override
     public Void visitBlockStmt(Stmt.Block stmt) {
 
-        executeBlock(stmt.statements, new Environment(environment));
+        allocated(Allocation.ENVIRONMENT, stmt.line, Allocation.ENVIRONMENT.bytes);
+        executeBlock(stmt.statements, new Environment(environment, this));
         return null;
 
     }
@@ -229,11 +410,17 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     public Object visitAssignExpr(Expr.Assign expr) {
 
         Object value = evaluate(expr.value);
-        Integer distance = locals.get(expr);
-        if(distance != null)
-            environment.assignAt(distance, expr.name, value);
-        else
+        if(expr.depth >= 0) {
+
+            environment.assignAt(this, expr.depth, expr.name, value);
+
+        } else {
+
+            globals.modifiedBy(this);
             globals.assign(expr.name, value);
+
+        }
+
         return value;
 
     }
@@ -268,7 +455,15 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     public Void visitPrintStmt(Stmt.Print stmt) {
 
         Object value = evaluate(stmt.expression);
-        System.out.println(stringify(value));
+        printBuffer.setLength(0);
+        appendValue(printBuffer, value);
+        // One write per line keeps output from parallel workers from interleaving.
+        printBuffer.append(System.lineSeparator());
+        int length = printBuffer.length();
+        if(length > printChars.length)
+            printChars = new char[Math.max(length, printChars.length * 2)];
+        printBuffer.getChars(0, length, printChars, 0);
+        out.write(printChars, 0, length);
         return null;
 
     }
@@ -306,13 +501,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
             case PLUS:
                 if(left instanceof Double && right instanceof Double)
                     return (double) left + (double) right;
-                if(left instanceof String && right instanceof String)
-                    return left + (String) right;
-                if(left instanceof Double)
-                    left = stringify(left);
-                if(right instanceof Double)
-                    right = stringify(right);
-                return left + (String) right;
+                return concat(expr.operator, toText(left), toText(right));
             case EQUAL_EQUAL:
                 return isEqual(left, right);
             case BANG_EQUAL:
@@ -379,7 +568,8 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
         if(stmt.superclass != null) {
 
-            environment = new Environment(environment);
+            allocated(Allocation.ENVIRONMENT, stmt.line, Allocation.ENVIRONMENT.bytes);
+            environment = new Environment(environment, this);
             environment.define("super", superclass);
 
         }
@@ -410,7 +600,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
         Object object = evaluate(expr.object);
         if(object instanceof LoxInstance)
-            return ((LoxInstance) object).get(expr.name);
+            return ((LoxInstance) object).get(this, expr.name);
         throw new RuntimeError(
                 expr.name,
                 "Only instances have properties."
@@ -428,7 +618,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
                     "Only instances have fields."
             );
         Object value = evaluate(expr.value);
-        ((LoxInstance) object).set(expr.name, value);
+        ((LoxInstance) object).set(this, expr.name, value);
         return value;
 
     }
@@ -443,7 +633,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     @Override
     public Object visitSuperExpr(Expr.Super expr) {
 
-        int distance = locals.get(expr);
+        int distance = expr.depth;
         LoxClass superclass = (LoxClass) environment.getAt(distance, "super");
         LoxInstance object = (LoxInstance) environment.getAt(distance - 1, "this");
         LoxFunction method = superclass.findMethod(expr.method.lexeme);
@@ -457,12 +647,20 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
                     )
             );
 
-        return method.bind(object);
+        return method.bind(this, object);
 
     }
 
     void interpret(List<Stmt> statements) {
 
+        Budget budget = new Budget(maxSteps, maxHeapBytes, timeoutNanos);
+        this.budget = budget;
+        if(interrupted) budget.cancel();
+        steps = 0;
+        stepLease = 0;
+        heapBytes = 0;
+        heapLease = 0;
+
         try {
 
             for(Stmt statement : statements) {
@@ -473,7 +671,22 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
         } catch (RuntimeError error) {
 
-            Lox.runtimeError(error);
+            out.flush();
+            if(metrics != null) metrics.runtimeErrors.increment();
+            errors.runtimeError(error);
+
+        } catch (StackOverflowError error) {
+
+            out.flush();
+            if(metrics != null) metrics.runtimeErrors.increment();
+            errors.runtimeError(new RuntimeError(callStack.line(), "Stack overflow."));
+
+        } finally {
+
+            // Tasks and workers can't outlive the run that started them.
+            budget.cancel();
+            interrupted = false;
+            out.flush();
 
         }
 
@@ -481,34 +694,93 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
     private void execute(Stmt statement) {
 
+        enter(statement);
         statement.accept(this);
 
     }
 
-    private String stringify(Object object) {
+    void enter(Stmt statement) {
 
-        if(object == null) return "nil";
+        callStack.line(statement.line);
+        if(counters != null) counters.hit(statement);
+        if(metrics != null) metrics.statements.increment();
+
+    }
+
+    // Generators run their bodies a statement at a time, each in the environment the generator saved.
+    void execute(Stmt statement, Environment environment) {
 
-        if(object instanceof Double) {
+        executeBlock(Collections.singletonList(statement), environment);
 
-            String text = object.toString();
-            if(text.endsWith(".0"))
-                text = text.substring(0, text.length() - 2);
-            return text;
+    }
+
+    Object evaluate(Expr expr, Environment environment) {
+
+        Environment previousEnv = this.environment;
+
+        try {
+
+            this.environment = environment;
+            return evaluate(expr);
+
+        } finally {
+
+            this.environment = previousEnv;
 
         }
 
+    }
+
+    static String stringify(Object object) {
+
+        if(object == null) return "nil";
+        if(object instanceof Double) return LoxNumbers.format((double) object);
         return object.toString();
 
     }
 
+    private void appendValue(StringBuilder builder, Object object) {
+
+        if(object instanceof Double)
+            LoxNumbers.appendTo(builder, (double) object);
+        else
+            builder.append(stringify(object));
+
+    }
+
+    private CharSequence concat(Token operator, CharSequence left, CharSequence right) {
+
+        if((long) left.length() + right.length() > Integer.MAX_VALUE)
+            throw new RuntimeError(operator, "String too long.");
+        CharSequence result = LoxRope.concat(left, right);
+
+        // A rope is charged up front for the characters it adds, so flattening it later never has to be.
+        if(result != left && result != right) {
+
+            int characters = result instanceof LoxRope ? ((LoxRope) result).charged : result.length();
+            allocated(Allocation.STRING, operator.line, Allocation.STRING.bytes + characters);
+
+        }
+
+        return result;
+
+    }
+
+    private CharSequence toText(Object object) {
+
+        if(object instanceof CharSequence) return (CharSequence) object;
+        if(object instanceof Double) return stringify(object);
+        return String.valueOf(object);
+
+    }
+
     private Object evaluate(Expr expr) {
 
         return expr.accept(this);
 
     }
 
-    private boolean isTruthy(Object object) {
+    static boolean isTruthy(Object object) {
 
         if(object == null) return false;
         if(object instanceof Boolean) return (boolean) object;
@@ -518,8 +790,10 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
     private boolean isEqual(Object left, Object right) {
 
-        if(left == null && right == null) return true;
+        if(left == right) return true;
         if(left == null) return false;
+        if(left instanceof LoxRope) left = left.toString();
+        if(right instanceof LoxRope) right = right.toString();
         return left.equals(right);
 
     }
@@ -568,17 +842,163 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
     }
 
-    void resolve(Expr expr, int depth) {
+    void allocated(Allocation kind, long bytes) {
+
+        allocated(kind, callStack.line(), bytes);
+
+    }
+
+    void allocated(Allocation kind, int line, long bytes) {
+
+        if(allocations != null) allocations.record(kind, line, bytes);
+        if(metrics != null) metrics.allocated(kind);
+        // Counts everything allocated during the run, not what's still reachable, so it's an upper bound.
+        if((heapBytes += bytes) > heapLease) leaseHeap(line);
+
+    }
+
+    private void leaseHeap(int line) {
+
+        heapLease += budget.leaseHeap(Math.max(Budget.HEAP_CHUNK, heapBytes - heapLease));
+        if(heapBytes > heapLease)
+            throw new ScriptTerminated(line, "Heap limit exceeded.");
+
+    }
+
+    void limit(long maxSteps, long timeoutNanos) {
+
+        this.maxSteps = maxSteps > 0 ? maxSteps : Long.MAX_VALUE;
+        this.timeoutNanos = Math.max(timeoutNanos, 0);
+
+    }
+
+    // Only for functions the resolver marked as pooled, their environments can't be reached after a call returns.
+    Environment acquireEnvironment(Environment enclosing) {
+
+        if(pooledEnvironments == 0) {
+
+            allocated(Allocation.ENVIRONMENT, Allocation.ENVIRONMENT.bytes);
+            return new Environment(enclosing, this);
+
+        }
+
+        Environment environment = environmentPool[--pooledEnvironments];
+        environmentPool[pooledEnvironments] = null;
+        environment.enclosing = enclosing;
+        return environment;
+
+    }
+
+    void releaseEnvironment(Environment environment) {
+
+        if(pooledEnvironments == environmentPool.length) return;
+        environment.reset(null);
+        environmentPool[pooledEnvironments++] = environment;
+
+    }
+
+    void limitDepth(int maxDepth) {
+
+        callStack.maxDepth = maxDepth > 0 ? maxDepth : Integer.MAX_VALUE;
+
+    }
+
+    void limitHeap(long maxBytes) {
+
+        maxHeapBytes = maxBytes > 0 ? maxBytes : Long.MAX_VALUE;
+
+    }
+
+    void interrupt() {
+
+        interrupted = true;
+        budget.cancel();
+
+    }
+
+    // Called at loop back-edges and function entry, the clock is only read when more steps are leased.
+    void step(int line) {
+
+        if(++steps > stepLease) leaseSteps(line);
+
+        if(budget.cancelled())
+            throw new ScriptTerminated(line, "Script interrupted.");
+
+    }
+
+    private void leaseSteps(int line) {
+
+        long granted = budget.leaseSteps(Budget.STEP_CHUNK);
+        if(granted == 0)
+            throw new ScriptTerminated(line, "Step limit exceeded.");
+        stepLease += granted;
+        if(budget.timedOut())
+            throw new ScriptTerminated(line, "Time limit exceeded.");
+
+    }
+
+    // Called by natives while they block, waiting doesn't use up steps.
+    void waiting(int line) {
+
+        if(budget.timedOut())
+            throw new ScriptTerminated(line, "Time limit exceeded.");
+        if(budget.cancelled())
+            throw new ScriptTerminated(line, "Script interrupted.");
+
+    }
+
+    // Called once a worker is done, hands back the rest of its leases and lets go of its pooled environments.
+    void finish() {
+
+        budget.giveBack(stepLease - steps, heapLease - heapBytes);
+        stepLease = steps;
+        heapLease = heapBytes;
+        Arrays.fill(environmentPool, 0, pooledEnvironments, null);
+        pooledEnvironments = 0;
+
+    }
+
+    Budget budget() {
+
+        return budget;
+
+    }
+
+    boolean isRoot() {
+
+        return parent == null;
+
+    }
+
+    // True for values this interpreter made, or one of its workers made.
+    boolean owns(Interpreter owner) {
+
+        for(Interpreter interpreter = owner; interpreter != null; interpreter = interpreter.parent)
+            if(interpreter == this) return true;
+        return false;
+
+    }
+
+    void enableMetrics() {
+
+        if(metrics != null) return;
+        metrics = new InterpreterMetrics(callStack);
+        metrics.register();
+
+    }
+
+    void disableMetrics() {
 
-        locals.put(expr, depth);
+        if(metrics == null) return;
+        metrics.unregister();
+        metrics = null;
 
     }
 
     private Object lookUpVariable(Token name, Expr expr) {
 
-        Integer distance = locals.get(expr);
-        if(distance != null)
-            return environment.getAt(distance, name.lexeme);
+        if(expr.depth >= 0)
+            return environment.getAt(expr.depth, name.lexeme);
         else
             return globals.get(name);
 
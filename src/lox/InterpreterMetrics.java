@@ -0,0 +1,155 @@
+package lox;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class InterpreterMetrics implements InterpreterMetricsMBean {
+
+    private static final AtomicInteger ids = new AtomicInteger();
+
+    // LongAdders stripe their cells so interpreters on different threads can share one instance.
+    final LongAdder statements = new LongAdder();
+    final LongAdder calls = new LongAdder();
+    final LongAdder instances = new LongAdder();
+    final LongAdder environments = new LongAdder();
+    final LongAdder runtimeErrors = new LongAdder();
+    final LongAdder scanNanos = new LongAdder();
+    final LongAdder parseNanos = new LongAdder();
+    final LongAdder resolveNanos = new LongAdder();
+    final LongAdder executeNanos = new LongAdder();
+    private final CallStack callStack;
+    private ObjectName name;
+
+    InterpreterMetrics(CallStack callStack) {
+
+        this.callStack = callStack;
+
+    }
+
+    void register() {
+
+        try {
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            name = new ObjectName("lox:type=Interpreter,name=interpreter-" + ids.incrementAndGet());
+            server.registerMBean(this, name);
+
+        } catch (JMException error) {
+
+            throw new IllegalStateException("Can't register interpreter metrics.", error);
+
+        }
+
+    }
+
+    void unregister() {
+
+        try {
+
+            if(name != null) ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+
+        } catch (JMException error) {
+
+            throw new IllegalStateException("Can't unregister interpreter metrics.", error);
+
+        }
+
+    }
+
+    void allocated(Allocation kind) {
+
+        if(kind == Allocation.INSTANCE) instances.increment();
+        else if(kind == Allocation.ENVIRONMENT) environments.increment();
+
+    }
+
+    @Override
+    public long getStatementsExecuted() {
+
+        return statements.sum();
+
+    }
+
+    @Override
+    public long getCallsMade() {
+
+        return calls.sum();
+
+    }
+
+    @Override
+    public long getInstancesCreated() {
+
+        return instances.sum();
+
+    }
+
+    @Override
+    public long getEnvironmentsAllocated() {
+
+        return environments.sum();
+
+    }
+
+    @Override
+    public long getRuntimeErrors() {
+
+        return runtimeErrors.sum();
+
+    }
+
+    @Override
+    public int getCallDepth() {
+
+        return callStack.depth();
+
+    }
+
+    @Override
+    public long getScanNanos() {
+
+        return scanNanos.sum();
+
+    }
+
+    @Override
+    public long getParseNanos() {
+
+        return parseNanos.sum();
+
+    }
+
+    @Override
+    public long getResolveNanos() {
+
+        return resolveNanos.sum();
+
+    }
+
+    @Override
+    public long getExecuteNanos() {
+
+        return executeNanos.sum();
+
+    }
+
+    @Override
+    public void reset() {
+
+        statements.reset();
+        calls.reset();
+        instances.reset();
+        environments.reset();
+        runtimeErrors.reset();
+        scanNanos.reset();
+        parseNanos.reset();
+        resolveNanos.reset();
+        executeNanos.reset();
+
+    }
+
+}
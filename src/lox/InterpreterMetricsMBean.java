@@ -0,0 +1,17 @@
+package lox;
+
+public interface InterpreterMetricsMBean {
+
+    long getStatementsExecuted();
+    long getCallsMade();
+    long getInstancesCreated();
+    long getEnvironmentsAllocated();
+    long getRuntimeErrors();
+    int getCallDepth();
+    long getScanNanos();
+    long getParseNanos();
+    long getResolveNanos();
+    long getExecuteNanos();
+    void reset();
+
+}
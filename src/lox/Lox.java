@@ -3,103 +3,154 @@ package lox;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.List;
 
 public class Lox {
 
-    static boolean hadError = false;
-    static boolean hadRuntimeError = false;
-    private static final Interpreter interpreter = new Interpreter();
+    private static final long PROFILE_INTERVAL_MILLIS = 1;
+    // Every Lox call takes a dozen or so Java frames, so scripts run on a thread with room for deep recursion.
+    private static final long STACK_BYTES = 1L << 30;
 
-    public static void main(String[] args) throws IOException {
+    public static void main(String[] args) throws Exception {
 
-        if(args.length > 1) {
+        if(args.length > 0 && args[0].equals("--bench")) {
 
-            System.out.println("Usage: jlox [script]");
-            System.exit(64);
+            int warmups = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+            int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+            new BenchmarkRunner(warmups, iterations).run();
+            return;
 
-        } else if(args.length == 1) {
+        }
 
-            runFile(args[0]);
+        int[] status = new int[1];
+        Thread thread = new Thread(null, () -> {
 
-        } else {
+            try {
 
-            runPrompt();
+                status[0] = start(args);
 
-        }
+            } catch (IOException error) {
 
-    }
+                System.err.println(error);
+                status[0] = 66;
 
-    private static void runFile(String path) throws IOException {
+            } catch (Throwable error) {
 
-        byte[] bytes = Files.readAllBytes(Paths.get(path));
-        run(new String(bytes, Charset.defaultCharset()));
-        if (hadError) System.exit(65);
-        if (hadRuntimeError) System.exit(70);
+                error.printStackTrace();
+                status[0] = 70;
 
-    }
+            }
 
-    private static void runPrompt() throws IOException {
+        }, "jlox", STACK_BYTES);
 
-        InputStreamReader input = new InputStreamReader(System.in);
-        BufferedReader reader = new BufferedReader(input);
-        System.out.println("Press Ctrl+D to exit");
+        thread.start();
+        thread.join();
+        if(status[0] != 0) System.exit(status[0]);
 
-        for(;;) {
+    }
 
-            System.out.print("> ");
-            String line = reader.readLine();
-            if(line == null) break;
-            run(line);
-            hadError = false;
-            hadRuntimeError = false;
+    private static int start(String[] args) throws IOException {
+
+        BufferedReader input = new BufferedReader(new InputStreamReader(System.in));
+        LoxContext context = new LoxContext(
+                input,
+                new OutputStreamWriter(System.out),
+                new OutputStreamWriter(System.err)
+        );
+        Interpreter interpreter = context.interpreter;
+        boolean profile = false;
+        int first = 0;
+
+        for(; first < args.length && args[first].startsWith("--"); first++) {
+
+            switch (args[first]) {
+
+                case "--profile":
+                    profile = true;
+                    break;
+                case "--count":
+                    interpreter.counters = new ExecutionCounters();
+                    break;
+                case "--alloc":
+                    interpreter.allocations = new AllocationTracker();
+                    break;
+                case "--jmx":
+                    context.enableMetrics();
+                    break;
+                case "--max-steps":
+                    if(++first == args.length) usage();
+                    context.limit(Long.parseLong(args[first]), null);
+                    break;
+                case "--max-depth":
+                    if(++first == args.length) usage();
+                    context.limitDepth(Integer.parseInt(args[first]));
+                    break;
+                case "--max-heap":
+                    if(++first == args.length) usage();
+                    context.limitHeap(Long.parseLong(args[first]));
+                    break;
+                default:
+                    usage();
+
+            }
 
         }
 
-    }
+        if(args.length - first > 1) usage();
+        String script = args.length - first == 1 ? args[first] : null;
 
-    private static void run(String source) {
+        Profiler profiler = null;
 
-        Scanner scanner = new Scanner(source);
-        List<Token> tokens = scanner.scanTokens();
-        Parser parser = new Parser(tokens);
-        List<Stmt> statements = parser.parse();
-        Resolver resolver = new Resolver(interpreter);
-        resolver.resolve(statements);
-        if(hadError) return;
-        interpreter.interpret(statements);
+        if(profile) {
 
-    }
+            profiler = new Profiler(interpreter.callStack, PROFILE_INTERVAL_MILLIS);
+            profiler.start();
 
-    static void error(int line, String message) {
+        }
+
+        int status = script != null ? runFile(context, script) : runPrompt(context, input);
 
-        report(line, "", message);
+        if(profiler != null) {
+
+            profiler.stop();
+            Path output = Paths.get(script != null ? script + ".collapsed" : "jlox.collapsed");
+            profiler.writeCollapsed(output);
+            profiler.report(System.err, 20);
+            System.err.printf("Collapsed stacks written to %s\n", output);
+
+        }
+
+        if(interpreter.counters != null) interpreter.counters.report(System.err);
+        if(interpreter.allocations != null) interpreter.allocations.report(System.err, 20);
+        return status;
 
     }
 
-    static void error(Token token, String message) {
+    private static void usage() {
 
-        if(token.type == TokenType.EOF)
-            report(token.line, " at end", message);
-        else
-            report(token.line, String.format(" at '%s'", token.lexeme), message);
+        System.out.println("Usage: jlox [--profile] [--count] [--alloc] [--jmx] [--max-steps n] [--max-heap bytes] [--max-depth n] [script] | jlox --bench [warmups] [iterations]");
+        System.exit(64);
 
     }
 
-    static void runtimeError(RuntimeError error) {
+    private static int runFile(LoxContext context, String path) throws IOException {
 
-        System.err.printf("%s \n[line %d]\n", error.getMessage(), error.token.line);
-        hadRuntimeError = true;
+        byte[] bytes = Files.readAllBytes(Paths.get(path));
+        context.run(new String(bytes, Charset.defaultCharset()));
+        if (context.errors.hadError()) return 65;
+        if (context.errors.hadRuntimeError()) return 70;
+        return 0;
 
     }
 
-    private static void report(int line, String where, String message) {
+    private static int runPrompt(LoxContext context, BufferedReader input) throws IOException {
 
-        System.err.printf("[line %d] Error %s: %s\n", line, where, message);
-        hadError = true;
+        new Repl(context).run(input);
+        return 0;
 
     }
 
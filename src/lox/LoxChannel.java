@@ -0,0 +1,144 @@
+package lox;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+class LoxChannel {
+
+    // Blocked senders and receivers wake up this often to notice interrupts and time limits.
+    private static final long POLL_MILLIS = 10;
+
+    private final Object[] buffer;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private int head = 0;
+    private int count = 0;
+    private boolean closed = false;
+    private String failure = null;
+
+    LoxChannel(int capacity) {
+
+        buffer = new Object[capacity];
+
+    }
+
+    void send(Interpreter interpreter, Object value) {
+
+        lock.lock();
+
+        try {
+
+            while(count == buffer.length && !closed) await(interpreter, notFull);
+            if(closed) throw new NativeError("Can't send on a closed channel.");
+            buffer[(head + count) % buffer.length] = value;
+            count++;
+            notEmpty.signal();
+
+        } finally {
+
+            lock.unlock();
+
+        }
+
+    }
+
+    Object receive(Interpreter interpreter) {
+
+        return receive(interpreter, null);
+
+    }
+
+    // Returns end once the channel is closed and drained, so a caller can tell that apart from a nil that was sent.
+    Object receive(Interpreter interpreter, Object end) {
+
+        lock.lock();
+
+        try {
+
+            while(count == 0 && !closed) await(interpreter, notEmpty);
+
+            if(count == 0) {
+
+                if(failure != null) throw new NativeError(failure);
+                return end;
+
+            }
+
+            Object value = buffer[head];
+            buffer[head] = null;
+            head = (head + 1) % buffer.length;
+            count--;
+            notFull.signal();
+            return value;
+
+        } finally {
+
+            lock.unlock();
+
+        }
+
+    }
+
+    void close() {
+
+        lock.lock();
+
+        try {
+
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+
+        } finally {
+
+            lock.unlock();
+
+        }
+
+    }
+
+    // Closes the channel so receivers see the error once everything sent before it is drained.
+    void fail(String message) {
+
+        lock.lock();
+
+        try {
+
+            failure = message;
+            close();
+
+        } finally {
+
+            lock.unlock();
+
+        }
+
+    }
+
+    private void await(Interpreter interpreter, Condition condition) {
+
+        try {
+
+            condition.await(POLL_MILLIS, TimeUnit.MILLISECONDS);
+
+        } catch (InterruptedException error) {
+
+            Thread.currentThread().interrupt();
+            throw new ScriptTerminated(interpreter.callStack.line(), "Script interrupted.");
+
+        }
+
+        interpreter.waiting(interpreter.callStack.line());
+
+    }
+
+    @Override
+    public String toString() {
+
+        return "<channel>";
+
+    }
+
+}
@@ -2,12 +2,13 @@ package lox;
 
 import java.util.List;
 import java.util.Map;
+import jdk.jfr.FlightRecorder;
 
 public class LoxClass implements LoxCallable {
 
     final String name;
-    private final Map<String, LoxFunction> methods;
-    private final LoxClass superclass;
+    final Map<String, LoxFunction> methods;
+    final LoxClass superclass;
 
     public LoxClass(String name, LoxClass superclass, Map<String, LoxFunction> methods) {
 
@@ -19,8 +20,9 @@ public class LoxClass implements LoxCallable {
 
     LoxFunction findMethod(String name) {
 
-        if(methods.containsKey(name))
-            return methods.get(name);
+        LoxFunction method = methods.get(name);
+        if(method != null)
+            return method;
         if(superclass != null)
             return superclass.findMethod(name);
         return null;
@@ -30,10 +32,36 @@ public class LoxClass implements LoxCallable {
     @Override
     public Object call(Interpreter interpreter, List<Object> arguments) {
 
-        LoxInstance instance = new LoxInstance(this);
+        InstantiationEvent event = null;
+
+        if(FlightRecorder.isInitialized() && InstantiationEvent.enabled()) {
+
+            event = new InstantiationEvent(name);
+            event.begin();
+
+        }
+
+        interpreter.allocated(Allocation.INSTANCE, Allocation.INSTANCE.bytes);
+        LoxInstance instance = new LoxInstance(this, interpreter);
         LoxFunction initializer = findMethod("init");
-        if(initializer != null)
-            initializer.bind(instance).call(interpreter, arguments);
+
+        if(initializer != null) {
+
+            interpreter.callStack.push(name);
+
+            try {
+
+                initializer.bind(interpreter, instance).call(interpreter, arguments);
+
+            } finally {
+
+                interpreter.callStack.pop();
+
+            }
+
+        }
+
+        if(event != null) event.commit();
         return instance;
 
     }
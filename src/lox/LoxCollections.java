@@ -0,0 +1,380 @@
+package lox;
+
+import java.util.List;
+
+// Every native is prefixed with the type it works on, so the short names stay free for scripts.
+class LoxCollections {
+
+    static void define(Environment globals) {
+
+        globals.define("List", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                return new LoxList(interpreter);
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 0;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+        globals.define("Map", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                return new LoxMap(interpreter);
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 0;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+        globals.define("listAppend", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                LoxList list = list(arguments.get(0));
+                list.modifiedBy(interpreter);
+                list.add(arguments.get(1));
+                interpreter.allocated(Allocation.ELEMENT, Allocation.ELEMENT.bytes);
+                return null;
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 2;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+        globals.define("listGet", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                LoxList list = list(arguments.get(0));
+                return list.get(index(arguments.get(1), list.size()));
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 2;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+        globals.define("listSet", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                LoxList list = list(arguments.get(0));
+                list.modifiedBy(interpreter);
+                list.set(index(arguments.get(1), list.size()), arguments.get(2));
+                return arguments.get(2);
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 3;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+        globals.define("listRemove", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                LoxList list = list(arguments.get(0));
+                list.modifiedBy(interpreter);
+                return list.remove(index(arguments.get(1), list.size()));
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 2;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+        globals.define("listSize", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                return (double) list(arguments.get(0)).size();
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 1;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+        globals.define("mapGet", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                return map(arguments.get(0)).get(arguments.get(1));
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 2;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+        globals.define("mapSet", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                LoxMap map = map(arguments.get(0));
+                map.modifiedBy(interpreter);
+                int size = map.size();
+                map.put(arguments.get(1), arguments.get(2));
+                if(map.size() != size)
+                    interpreter.allocated(Allocation.ELEMENT, Allocation.ELEMENT.bytes);
+                return arguments.get(2);
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 3;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+        globals.define("mapRemove", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                LoxMap map = map(arguments.get(0));
+                map.modifiedBy(interpreter);
+                return map.remove(arguments.get(1));
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 2;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+        globals.define("mapSize", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                return (double) map(arguments.get(0)).size();
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 1;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+        globals.define("mapContains", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                return map(arguments.get(0)).contains(arguments.get(1));
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 2;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+        globals.define("mapKeys", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                return map(arguments.get(0)).keys(interpreter);
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 1;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+    }
+
+    private static LoxList list(Object value) {
+
+        if(value instanceof LoxList) return (LoxList) value;
+        throw new NativeError("Expected a list.");
+
+    }
+
+    private static LoxMap map(Object value) {
+
+        if(value instanceof LoxMap) return (LoxMap) value;
+        throw new NativeError("Expected a map.");
+
+    }
+
+    private static int index(Object value, int size) {
+
+        if(!(value instanceof Double))
+            throw new NativeError("List index must be a number.");
+        double index = (double) value;
+        if(index != (int) index || index < 0 || index >= size)
+            throw new NativeError(String.format("List index %s is out of bounds.", Interpreter.stringify(value)));
+        return (int) index;
+
+    }
+
+}
@@ -0,0 +1,144 @@
+package lox;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.time.Duration;
+import java.util.List;
+
+// A context owns its interpreter, globals, streams and errors. It must only be used by one thread at a time,
+// but any number of contexts can run scripts concurrently.
+public class LoxContext {
+
+    final ErrorCollector errors;
+    final Interpreter interpreter;
+
+    public LoxContext() {
+
+        this(
+                new InputStreamReader(System.in),
+                new OutputStreamWriter(System.out),
+                new OutputStreamWriter(System.err)
+        );
+
+    }
+
+    public LoxContext(Reader input, Writer output, Writer errorOutput) {
+
+        errors = new ErrorCollector(errorOutput == null ? null : new PrintWriter(errorOutput));
+        BufferedReader reader = input instanceof BufferedReader ? (BufferedReader) input : new BufferedReader(input);
+        interpreter = new Interpreter(errors, reader, new PrintWriter(output));
+
+    }
+
+    public boolean run(String source) {
+
+        errors.reset();
+        LoxProgram program = LoxProgram.compile(source, errors, interpreter.metrics);
+        return program.compiled() && execute(program);
+
+    }
+
+    boolean run(String source, Resolver session) {
+
+        errors.reset();
+        LoxProgram program = LoxProgram.compile(source, session, errors, interpreter.metrics);
+        return program.compiled() && execute(program);
+
+    }
+
+    public boolean run(LoxProgram program) {
+
+        errors.reset();
+
+        if(!program.compiled()) {
+
+            errors.report(program.errors());
+            return false;
+
+        }
+
+        return execute(program);
+
+    }
+
+    private boolean execute(LoxProgram program) {
+
+        InterpreterMetrics metrics = interpreter.metrics;
+        if(interpreter.counters != null) interpreter.counters.register(program.statements);
+        long start = System.nanoTime();
+        ScriptPhaseEvent execute = LoxProgram.beginPhase("execute");
+        interpreter.interpret(program.statements);
+        LoxProgram.endPhase(execute, metrics == null ? null : metrics.executeNanos, start);
+        return !errors.hadRuntimeError();
+
+    }
+
+    public void limit(long maxSteps, Duration timeout) {
+
+        interpreter.limit(maxSteps, timeout == null ? 0 : timeout.toNanos());
+
+    }
+
+    // Scripts run on the calling thread, so its stack caps the depth too. A Lox call takes about 1.5 KB of it, a
+    // thread with the usual 1 MB stack overflows after roughly 700 calls whatever limit is set here.
+    public void limitDepth(int maxDepth) {
+
+        interpreter.limitDepth(maxDepth);
+
+    }
+
+    public void limitHeap(long maxBytes) {
+
+        interpreter.limitHeap(maxBytes);
+
+    }
+
+    // Registers the interpreter's MBean, unregister it again before dropping a context or it stays reachable.
+    public void enableMetrics() {
+
+        interpreter.enableMetrics();
+
+    }
+
+    public void disableMetrics() {
+
+        interpreter.disableMetrics();
+
+    }
+
+    public void denyFileAccess() {
+
+        interpreter.fileAccess = false;
+
+    }
+
+    // Safe to call from any thread, the running script stops at its next loop iteration or function call.
+    public void interrupt() {
+
+        interpreter.interrupt();
+
+    }
+
+    public void define(String name, Object value) {
+
+        interpreter.globals.define(name, value);
+
+    }
+
+    public Object global(String name) {
+
+        return interpreter.globals.getAt(0, name);
+
+    }
+
+    public List<LoxError> errors() {
+
+        return errors.errors();
+
+    }
+
+}
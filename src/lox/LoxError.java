@@ -0,0 +1,38 @@
+package lox;
+
+import java.util.Collections;
+import java.util.List;
+
+public class LoxError {
+
+    public enum Kind { COMPILE, RUNTIME }
+
+    public final Kind kind;
+    public final int line;
+    public final String message;
+    // Lox frames active when a runtime error was raised, innermost first. Empty for compile errors.
+    public final List<String> trace;
+
+    LoxError(Kind kind, int line, String message) {
+
+        this(kind, line, message, Collections.emptyList());
+
+    }
+
+    LoxError(Kind kind, int line, String message, List<String> trace) {
+
+        this.kind = kind;
+        this.line = line;
+        this.message = message;
+        this.trace = trace;
+
+    }
+
+    @Override
+    public String toString() {
+
+        return String.format("[line %d] %s", line, message);
+
+    }
+
+}
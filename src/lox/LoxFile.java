@@ -0,0 +1,328 @@
+package lox;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+
+// Methods are synchronized because the async natives read and write from a background task.
+class LoxFile {
+
+    private static final int BUFFER_BYTES = 1 << 18;
+    private static final long MAP_BYTES = 1L << 26;
+
+    private final String path;
+    // The run that opened the file, it closes whatever is still open when it ends.
+    private final Budget budget;
+    private final FileChannel channel;
+    private final boolean mapped;
+    private ByteBuffer bytes;
+    private CharBuffer chars;
+    private long mappedEnd = 0;
+    private boolean drained = false;
+    private CharsetDecoder decoder;
+    private CharsetEncoder encoder;
+    // Writes queued by writeAsync. A single writer task works through them so they land in the order they were queued.
+    private final ArrayDeque<PendingWrite> pending = new ArrayDeque<>();
+    private boolean writing = false;
+
+    LoxFile(String path, String mode, Budget budget) throws IOException {
+
+        this.path = path;
+        this.budget = budget;
+        Path file = Path.of(path);
+
+        switch (mode) {
+
+            case "r":
+            case "m":
+                channel = FileChannel.open(file, StandardOpenOption.READ);
+                mapped = mode.equals("m");
+                bytes = mapped ? ByteBuffer.allocate(0) : ByteBuffer.allocateDirect(BUFFER_BYTES).flip();
+                chars = CharBuffer.allocate(BUFFER_BYTES).flip();
+                decoder = StandardCharsets.UTF_8.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+                break;
+            case "w":
+            case "a":
+                channel = FileChannel.open(
+                        file,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE,
+                        mode.equals("w") ? StandardOpenOption.TRUNCATE_EXISTING : StandardOpenOption.APPEND
+                );
+                mapped = false;
+                bytes = ByteBuffer.allocateDirect(BUFFER_BYTES);
+                encoder = StandardCharsets.UTF_8.newEncoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+                break;
+            default:
+                throw new NativeError(String.format("Unknown file mode '%s', expected 'r', 'm', 'w' or 'a'.", mode));
+
+        }
+
+        budget.opened(this);
+
+    }
+
+    // What the buffers take up, a read buffer holds two bytes per character.
+    long bufferBytes() {
+
+        return bytes.capacity() + (chars == null ? 0 : 2L * chars.capacity());
+
+    }
+
+    synchronized String readLine() throws IOException {
+
+        StringBuilder line = null;
+
+        while(true) {
+
+            if(!chars.hasRemaining() && !fill())
+                return line == null ? null : line.toString();
+
+            int start = chars.position();
+            int end = start;
+            int limit = chars.limit();
+            while(end < limit && chars.get(end) != '\n') end++;
+
+            if(end < limit) {
+
+                int length = end > start && chars.get(end - 1) == '\r' ? end - start - 1 : end - start;
+                // A \r\n split across two buffers leaves the \r at the end of what's been collected so far.
+                if(end == start && line != null && line.length() > 0 && line.charAt(line.length() - 1) == '\r')
+                    line.setLength(line.length() - 1);
+                String text = new String(chars.array(), chars.arrayOffset() + start, length);
+                chars.position(end + 1);
+                return line == null ? text : line.append(text).toString();
+
+            }
+
+            if(line == null) line = new StringBuilder();
+            line.append(chars);
+            chars.position(limit);
+
+        }
+
+    }
+
+    synchronized String readChunk(int size) throws IOException {
+
+        StringBuilder chunk = new StringBuilder(Math.min(size, BUFFER_BYTES));
+
+        while(chunk.length() < size) {
+
+            if(!chars.hasRemaining() && !fill()) break;
+            int count = Math.min(size - chunk.length(), chars.remaining());
+            chunk.append(chars, 0, count);
+            chars.position(chars.position() + count);
+
+        }
+
+        return chunk.length() == 0 && size > 0 ? null : chunk.toString();
+
+    }
+
+    synchronized void write(CharSequence text) throws IOException {
+
+        awaitWrites();
+        encode(text);
+
+    }
+
+    synchronized void writeLater(String text, LoxChannel done) {
+
+        if(encoder == null) throw new NativeError(String.format("File '%s' isn't open for writing.", path));
+        if(!channel.isOpen()) throw new NativeError(String.format("File '%s' is closed.", path));
+        pending.add(new PendingWrite(text, done));
+        if(writing) return;
+        writing = true;
+        LoxTasks.execute(this::writePending);
+
+    }
+
+    private void writePending() {
+
+        while(true) {
+
+            PendingWrite next;
+
+            synchronized(this) {
+
+                next = pending.poll();
+
+                if(next == null) {
+
+                    writing = false;
+                    notifyAll();
+                    return;
+
+                }
+
+                try {
+
+                    encode(next.text);
+
+                } catch (IOException error) {
+
+                    next.done.fail(LoxFiles.failed(this, error).getMessage());
+                    continue;
+
+                } catch (RuntimeException error) {
+
+                    next.done.fail(error.getMessage());
+                    continue;
+
+                }
+
+            }
+
+            next.done.close();
+
+        }
+
+    }
+
+    // Waits for the writer task, so direct writes and close come after everything queued before them.
+    private void awaitWrites() throws IOException {
+
+        try {
+
+            while(writing) wait();
+
+        } catch (InterruptedException error) {
+
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+
+        }
+
+    }
+
+    private void encode(CharSequence text) throws IOException {
+
+        if(encoder == null) throw new NativeError(String.format("File '%s' isn't open for writing.", path));
+        CharBuffer input = CharBuffer.wrap(text);
+
+        while(input.hasRemaining()) {
+
+            if(encoder.encode(input, bytes, false).isOverflow()) drain();
+
+        }
+
+    }
+
+    synchronized void close() throws IOException {
+
+        awaitWrites();
+        if(!channel.isOpen()) return;
+        budget.closed(this);
+
+        if(encoder != null) {
+
+            while(encoder.encode(CharBuffer.allocate(0), bytes, true).isOverflow()) drain();
+            while(encoder.flush(bytes).isOverflow()) drain();
+            drain();
+
+        }
+
+        channel.close();
+
+    }
+
+    // Decodes the next run of characters into chars, returns false once the file is exhausted.
+    private boolean fill() throws IOException {
+
+        if(decoder == null) throw new NativeError(String.format("File '%s' isn't open for reading.", path));
+        if(drained) return false;
+        chars.clear();
+
+        while(true) {
+
+            decoder.decode(bytes, chars, false);
+            if(chars.position() > 0) break;
+
+            if(!refill()) {
+
+                decoder.decode(bytes, chars, true);
+                decoder.flush(chars);
+                drained = true;
+                break;
+
+            }
+
+        }
+
+        chars.flip();
+        return chars.hasRemaining();
+
+    }
+
+    private boolean refill() throws IOException {
+
+        if(!mapped) {
+
+            bytes.compact();
+            int read = channel.read(bytes);
+            bytes.flip();
+            return read > 0;
+
+        }
+
+        // Each window starts at the first byte the decoder hasn't consumed, so characters never straddle windows.
+        long start = mappedEnd - bytes.remaining();
+        long size = channel.size();
+        if(mappedEnd >= size) return false;
+        long length = Math.min(MAP_BYTES, size - start);
+        bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        mappedEnd = start + length;
+        return true;
+
+    }
+
+    private void drain() throws IOException {
+
+        bytes.flip();
+        while(bytes.hasRemaining()) channel.write(bytes);
+        bytes.clear();
+
+    }
+
+    String path() {
+
+        return path;
+
+    }
+
+    @Override
+    public String toString() {
+
+        return String.format("<file %s>", path);
+
+    }
+
+    private static class PendingWrite {
+
+        final String text;
+        final LoxChannel done;
+
+        PendingWrite(String text, LoxChannel done) {
+
+            this.text = text;
+            this.done = done;
+
+        }
+
+    }
+
+}
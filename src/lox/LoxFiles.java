@@ -0,0 +1,292 @@
+package lox;
+
+import java.io.IOException;
+import java.util.List;
+
+class LoxFiles {
+
+    private static final int ASYNC_LINES = 64;
+
+    static void define(Environment globals) {
+
+        globals.define("open", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                if(!interpreter.fileAccess) throw new NativeError("File access is disabled.");
+                String path = text(arguments.get(0));
+
+                try {
+
+                    LoxFile file = new LoxFile(path, text(arguments.get(1)), interpreter.budget());
+                    interpreter.allocated(Allocation.FILE, Allocation.FILE.bytes + file.bufferBytes());
+                    return file;
+
+                } catch (IOException error) {
+
+                    throw new NativeError(String.format("Can't open '%s' (%s).", path, describe(error)));
+
+                }
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 2;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+        globals.define("readLine", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                LoxFile file = file(arguments.get(0));
+
+                try {
+
+                    return read(interpreter, file.readLine());
+
+                } catch (IOException error) {
+
+                    throw failed(file, error);
+
+                }
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 1;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+        globals.define("readChunk", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                LoxFile file = file(arguments.get(0));
+                Object size = arguments.get(1);
+                if(!(size instanceof Double) || (double) size != (int) (double) size || (double) size < 1)
+                    throw new NativeError("Chunk size must be a positive whole number.");
+
+                try {
+
+                    return read(interpreter, file.readChunk((int) (double) size));
+
+                } catch (IOException error) {
+
+                    throw failed(file, error);
+
+                }
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 2;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+        globals.define("write", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                LoxFile file = file(arguments.get(0));
+
+                try {
+
+                    file.write(Interpreter.stringify(arguments.get(1)));
+
+                } catch (IOException error) {
+
+                    throw failed(file, error);
+
+                }
+
+                return null;
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 2;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+        globals.define("readLinesAsync", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                LoxFile file = file(arguments.get(0));
+                LoxChannel lines = new LoxChannel(ASYNC_LINES);
+                Interpreter worker = new Interpreter(interpreter);
+
+                LoxTasks.execute(interpreter, () -> {
+
+                    try {
+
+                        for(String line = file.readLine(); line != null; line = file.readLine())
+                            lines.send(worker, read(worker, line));
+                        lines.close();
+
+                    } catch (IOException error) {
+
+                        lines.fail(failed(file, error).getMessage());
+
+                    } catch (RuntimeException error) {
+
+                        lines.fail(error.getMessage());
+
+                    } finally {
+
+                        worker.finish();
+
+                    }
+
+                });
+
+                return lines;
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 1;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+        globals.define("writeAsync", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                LoxFile file = file(arguments.get(0));
+                String text = Interpreter.stringify(arguments.get(1));
+                LoxChannel done = new LoxChannel(1);
+                file.writeLater(text, done);
+                return done;
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 2;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+    }
+
+    static void close(LoxFile file) {
+
+        try {
+
+            file.close();
+
+        } catch (IOException error) {
+
+            throw failed(file, error);
+
+        }
+
+    }
+
+    private static String read(Interpreter interpreter, String text) {
+
+        if(text != null)
+            interpreter.allocated(Allocation.STRING, Allocation.STRING.bytes + text.length());
+        return text;
+
+    }
+
+    private static LoxFile file(Object value) {
+
+        if(value instanceof LoxFile) return (LoxFile) value;
+        throw new NativeError("Expected a file.");
+
+    }
+
+    private static String text(Object value) {
+
+        if(value instanceof CharSequence) return value.toString();
+        throw new NativeError("Expected a string.");
+
+    }
+
+    static NativeError failed(LoxFile file, IOException error) {
+
+        return new NativeError(String.format("I/O error on '%s' (%s).", file.path(), describe(error)));
+
+    }
+
+    private static String describe(IOException error) {
+
+        return error.getMessage() == null ? error.getClass().getSimpleName() : error.getClass().getSimpleName() + ": " + error.getMessage();
+
+    }
+
+}
@@ -1,6 +1,7 @@
 package lox;
 
 import java.util.List;
+import jdk.jfr.FlightRecorder;
 
 public class LoxFunction implements LoxCallable {
 
@@ -16,9 +17,30 @@ public class LoxFunction implements LoxCallable {
 
     }
 
-    LoxFunction bind(LoxInstance instance) {
+    Environment closure() {
 
-        Environment environment = new Environment(closure);
+        return closure;
+
+    }
+
+    // Names the function and every function nested in it look up in the globals.
+    List<String> globals() {
+
+        return declaration.globals;
+
+    }
+
+    LoxFunction withClosure(Environment closure) {
+
+        return new LoxFunction(declaration, closure, isInitializer);
+
+    }
+
+    LoxFunction bind(Interpreter interpreter, LoxInstance instance) {
+
+        interpreter.allocated(Allocation.ENVIRONMENT, Allocation.ENVIRONMENT.bytes);
+        interpreter.allocated(Allocation.BOUND_METHOD, Allocation.BOUND_METHOD.bytes);
+        Environment environment = new Environment(closure, interpreter);
         environment.define("this", instance);
         return new LoxFunction(declaration, environment, isInitializer);
 
@@ -27,10 +49,49 @@ public class LoxFunction implements LoxCallable {
     @Override
     public Object call(Interpreter interpreter, List<Object> arguments) {
 
-        Environment environment = new Environment(closure);
+        interpreter.step(interpreter.callStack.line());
+        Environment environment;
+
+        if(declaration.pooled) {
+
+            environment = interpreter.acquireEnvironment(closure);
+
+        } else {
+
+            interpreter.allocated(Allocation.ENVIRONMENT, Allocation.ENVIRONMENT.bytes);
+            environment = new Environment(closure, interpreter);
+
+        }
+
         for(int i = 0; i < declaration.params.size(); i++)
             environment.define(declaration.params.get(i).lexeme, arguments.get(i));
 
+        // Calling a generator only binds its arguments, the body runs as the generator is iterated.
+        if(declaration.generator) {
+
+            interpreter.allocated(Allocation.GENERATOR, Allocation.GENERATOR.bytes);
+            return new LoxGenerator(declaration, environment);
+
+        }
+
+        interpreter.callStack.push(declaration.name.lexeme);
+        FunctionCallEvent event = null;
+        long start = 0;
+
+        if(FlightRecorder.isInitialized() && FunctionCallEvent.enabled()) {
+
+            event = new FunctionCallEvent(declaration.name.lexeme, declaration.line);
+            event.begin();
+
+        }
+
+        if(interpreter.counters != null) {
+
+            interpreter.counters.entered(declaration);
+            start = System.nanoTime();
+
+        }
+
         try {
 
             interpreter.executeBlock(declaration.body, environment);
@@ -40,6 +101,24 @@ public class LoxFunction implements LoxCallable {
             if(isInitializer) return closure.getAt(0, "this");
             return returnValue.value;
 
+        } catch (RuntimeError error) {
+
+            if(error.trace == null) error.trace = interpreter.callStack.snapshot();
+            throw error;
+
+        } catch (StackOverflowError error) {
+
+            // The Java stack ran out before maxDepth did, unwinding to here leaves room to report it.
+            throw new RuntimeError(interpreter.callStack.line(), "Stack overflow.");
+
+        } finally {
+
+            interpreter.callStack.pop();
+            if(declaration.pooled) interpreter.releaseEnvironment(environment);
+            if(event != null) event.commit();
+            if(interpreter.counters != null)
+                interpreter.counters.called(declaration, System.nanoTime() - start);
+
         }
 
         if(isInitializer) return closure.getAt(0, "this");
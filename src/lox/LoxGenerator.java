@@ -0,0 +1,327 @@
+package lox;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// A suspended generator is just its frames, no thread or Java stack is held between values. Blocks, ifs and
+// loops are stepped here so a yield inside them can stop and later resume, other statements and every
+// expression are handed to the interpreter and always run to completion.
+class LoxGenerator extends LoxSequence {
+
+    private static final Object DONE = new Object();
+
+    private final Stmt.Function declaration;
+    private final Environment environment;
+    private final ArrayDeque<Frame> frames = new ArrayDeque<>();
+    private boolean running = false;
+
+    LoxGenerator(Stmt.Function declaration, Environment environment) {
+
+        this.declaration = declaration;
+        this.environment = environment;
+        frames.push(new Body(declaration.body, environment));
+
+    }
+
+    @Override
+    Iterator<Object> iterator(Interpreter interpreter) {
+
+        return new Values(interpreter);
+
+    }
+
+    private Object resume(Interpreter interpreter) {
+
+        if(frames.isEmpty()) return DONE;
+        if(running) throw new NativeError(String.format("Generator '%s' is already running.", declaration.name.lexeme));
+        // Resuming changes the generator's frames, so only its owner may do it.
+        environment.modifiedBy(interpreter);
+
+        running = true;
+        interpreter.callStack.push(declaration.name.lexeme);
+
+        try {
+
+            return run(interpreter);
+
+        } catch (RuntimeError error) {
+
+            if(error.trace == null) error.trace = interpreter.callStack.snapshot();
+            finish();
+            throw error;
+
+        } catch (RuntimeException error) {
+
+            finish();
+            throw error;
+
+        } finally {
+
+            interpreter.callStack.pop();
+            running = false;
+
+        }
+
+    }
+
+    private Object run(Interpreter interpreter) {
+
+        while(!frames.isEmpty()) {
+
+            Frame frame = frames.peek();
+
+            if(frame instanceof Body) {
+
+                Body body = (Body) frame;
+
+                if(body.index == body.statements.size()) {
+
+                    frames.pop();
+                    continue;
+
+                }
+
+                Stmt statement = body.statements.get(body.index++);
+                Object value = execute(interpreter, statement, body.environment);
+                if(value != DONE) return value;
+
+            } else if(frame instanceof Loop) {
+
+                Loop loop = (Loop) frame;
+                if(loop.started) interpreter.step(loop.statement.line);
+                loop.started = true;
+
+                if(Interpreter.isTruthy(interpreter.evaluate(loop.statement.condition, loop.environment)))
+                    frames.push(new Body(Collections.singletonList(loop.statement.body), loop.environment));
+                else
+                    frames.pop();
+
+            } else {
+
+                Each each = (Each) frame;
+                if(each.started) interpreter.step(each.statement.line);
+                each.started = true;
+                Object item;
+
+                try {
+
+                    if(!each.items.hasNext()) {
+
+                        frames.pop();
+                        LoxSequence.close(each.items);
+                        continue;
+
+                    }
+
+                    item = each.items.next();
+
+                } catch (NativeError error) {
+
+                    throw new RuntimeError(each.statement.name, error.getMessage());
+
+                }
+
+                interpreter.allocated(Allocation.ENVIRONMENT, each.statement.line, Allocation.ENVIRONMENT.bytes);
+                Environment scope = new Environment(each.environment, interpreter);
+                scope.define(each.statement.name.lexeme, item);
+                frames.push(new Body(Collections.singletonList(each.statement.body), scope));
+
+            }
+
+        }
+
+        return DONE;
+
+    }
+
+    // Returns the yielded value, or DONE when the statement didn't suspend the generator.
+    private Object execute(Interpreter interpreter, Stmt statement, Environment environment) {
+
+        if(!suspendable(statement)) {
+
+            interpreter.execute(statement, environment);
+            return DONE;
+
+        }
+
+        interpreter.enter(statement);
+
+        if(statement instanceof Stmt.Yield) {
+
+            return interpreter.evaluate(((Stmt.Yield) statement).value, environment);
+
+        } else if(statement instanceof Stmt.Return) {
+
+            finish();
+
+        } else if(statement instanceof Stmt.Block) {
+
+            interpreter.allocated(Allocation.ENVIRONMENT, statement.line, Allocation.ENVIRONMENT.bytes);
+            frames.push(new Body(((Stmt.Block) statement).statements, new Environment(environment, interpreter)));
+
+        } else if(statement instanceof Stmt.If) {
+
+            Stmt.If branch = (Stmt.If) statement;
+            Stmt taken = Interpreter.isTruthy(interpreter.evaluate(branch.condition, environment))
+                    ? branch.thenBranch : branch.elseBranch;
+            if(taken != null) frames.push(new Body(Collections.singletonList(taken), environment));
+
+        } else if(statement instanceof Stmt.While) {
+
+            frames.push(new Loop((Stmt.While) statement, environment));
+
+        } else if(statement instanceof Stmt.ForIn) {
+
+            Stmt.ForIn loop = (Stmt.ForIn) statement;
+
+            try {
+
+                frames.push(new Each(loop, LoxSequence.iterator(interpreter, interpreter.evaluate(loop.iterable, environment)), environment));
+
+            } catch (NativeError error) {
+
+                throw new RuntimeError(loop.name, error.getMessage());
+
+            }
+
+        }
+
+        return DONE;
+
+    }
+
+    private static boolean suspendable(Stmt statement) {
+
+        return statement instanceof Stmt.Yield || statement instanceof Stmt.Return || statement instanceof Stmt.Block
+                || statement instanceof Stmt.If || statement instanceof Stmt.While || statement instanceof Stmt.ForIn;
+
+    }
+
+    // Abandoning a generator part way unwinds its frames, closing what its for-in loops are iterating over.
+    private void close(Interpreter interpreter) {
+
+        if(running || frames.isEmpty()) return;
+        environment.modifiedBy(interpreter);
+        finish();
+
+    }
+
+    private void finish() {
+
+        for(Frame frame : frames)
+            if(frame instanceof Each) LoxSequence.close(((Each) frame).items);
+        frames.clear();
+
+    }
+
+    @Override
+    public String toString() {
+
+        return String.format("<generator %s>", declaration.name.lexeme);
+
+    }
+
+    private class Values implements Iterator<Object>, AutoCloseable {
+
+        private final Interpreter interpreter;
+        private Object next = null;
+        private boolean ready = false;
+
+        Values(Interpreter interpreter) {
+
+            this.interpreter = interpreter;
+
+        }
+
+        @Override
+        public boolean hasNext() {
+
+            if(!ready) {
+
+                next = resume(interpreter);
+                ready = true;
+
+            }
+
+            return next != DONE;
+
+        }
+
+        @Override
+        public Object next() {
+
+            if(!hasNext()) throw new NoSuchElementException();
+            ready = false;
+            return next;
+
+        }
+
+        @Override
+        public void close() {
+
+            LoxGenerator.this.close(interpreter);
+
+        }
+
+    }
+
+    private abstract static class Frame {
+
+        final Environment environment;
+
+        Frame(Environment environment) {
+
+            this.environment = environment;
+
+        }
+
+    }
+
+    private static class Body extends Frame {
+
+        final List<Stmt> statements;
+        int index = 0;
+
+        Body(List<Stmt> statements, Environment environment) {
+
+            super(environment);
+            this.statements = statements;
+
+        }
+
+    }
+
+    private static class Loop extends Frame {
+
+        final Stmt.While statement;
+        boolean started = false;
+
+        Loop(Stmt.While statement, Environment environment) {
+
+            super(environment);
+            this.statement = statement;
+
+        }
+
+    }
+
+    private static class Each extends Frame {
+
+        final Stmt.ForIn statement;
+        final Iterator<Object> items;
+        boolean started = false;
+
+        Each(Stmt.ForIn statement, Iterator<Object> items, Environment environment) {
+
+            super(environment);
+            this.statement = statement;
+            this.items = items;
+
+        }
+
+    }
+
+}
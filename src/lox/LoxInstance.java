@@ -3,23 +3,25 @@ package lox;
 import java.util.HashMap;
 import java.util.Map;
 
-public class LoxInstance {
+public class LoxInstance extends Owned {
 
-    private final LoxClass klass;
-    private final Map<String, Object> fields = new HashMap<>();
+    final LoxClass klass;
+    final Map<String, Object> fields = new HashMap<>();
 
-    public LoxInstance(LoxClass klass) {
+    LoxInstance(LoxClass klass, Interpreter owner) {
 
+        super(owner);
         this.klass = klass;
 
     }
 
-    Object get(Token name) {
+    Object get(Interpreter interpreter, Token name) {
 
-        if(fields.containsKey(name.lexeme))
-            return fields.get(name.lexeme);
+        Object value = fields.get(name.lexeme);
+        if(value != null || fields.containsKey(name.lexeme))
+            return value;
         LoxFunction method = klass.findMethod(name.lexeme);
-        if(method != null) return method.bind(this);
+        if(method != null) return method.bind(interpreter, this);
         throw new RuntimeError(
                 name,
                 String.format(
@@ -30,9 +32,13 @@ public class LoxInstance {
 
     }
 
-    void set(Token name, Object value) {
+    void set(Interpreter interpreter, Token name, Object value) {
 
+        modifiedBy(interpreter);
+        int size = fields.size();
         fields.put(name.lexeme, value);
+        if(fields.size() != size)
+            interpreter.allocated(Allocation.FIELD, name.line, Allocation.FIELD.bytes);
 
     }
 
@@ -0,0 +1,156 @@
+package lox;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+class LoxList extends Owned {
+
+    // Elements stay unboxed in numbers until the first non-number is stored.
+    private double[] numbers;
+    private Object[] values;
+    private int size;
+
+    LoxList(Interpreter owner) {
+
+        this(owner, 8);
+
+    }
+
+    LoxList(Interpreter owner, int capacity) {
+
+        super(owner);
+        numbers = new double[Math.max(capacity, 8)];
+
+    }
+
+    int size() {
+
+        return size;
+
+    }
+
+    Object get(int index) {
+
+        if(values != null) return values[index];
+        return numbers[index];
+
+    }
+
+    void set(int index, Object value) {
+
+        if(values == null) {
+
+            if(value instanceof Double) {
+
+                numbers[index] = (double) value;
+                return;
+
+            }
+
+            box();
+
+        }
+
+        values[index] = value;
+
+    }
+
+    void add(Object value) {
+
+        ensureCapacity(size + 1);
+        size++;
+        set(size - 1, value);
+
+    }
+
+    Object remove(int index) {
+
+        Object removed = get(index);
+
+        if(values != null) {
+
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            values[size - 1] = null;
+
+        } else {
+
+            System.arraycopy(numbers, index + 1, numbers, index, size - index - 1);
+
+        }
+
+        size--;
+        return removed;
+
+    }
+
+    private void ensureCapacity(int capacity) {
+
+        if(values != null) {
+
+            if(capacity > values.length)
+                values = Arrays.copyOf(values, Math.max(capacity, values.length * 2));
+
+        } else if(capacity > numbers.length) {
+
+            numbers = Arrays.copyOf(numbers, Math.max(capacity, numbers.length * 2));
+
+        }
+
+    }
+
+    private void box() {
+
+        values = new Object[numbers.length];
+        for(int i = 0; i < size; i++)
+            values[i] = numbers[i];
+        numbers = null;
+
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder builder = new StringBuilder();
+        appendTo(builder, Collections.newSetFromMap(new IdentityHashMap<>()));
+        return builder.toString();
+
+    }
+
+    void appendTo(StringBuilder builder, Set<Object> visiting) {
+
+        if(!visiting.add(this)) {
+
+            builder.append("[...]");
+            return;
+
+        }
+
+        builder.append('[');
+
+        for(int i = 0; i < size; i++) {
+
+            if(i > 0) builder.append(", ");
+            appendElement(builder, get(i), visiting);
+
+        }
+
+        builder.append(']');
+        visiting.remove(this);
+
+    }
+
+    // Lists and maps that contain themselves print as [...] or {...} instead of recursing forever.
+    static void appendElement(StringBuilder builder, Object value, Set<Object> visiting) {
+
+        if(value instanceof LoxList)
+            ((LoxList) value).appendTo(builder, visiting);
+        else if(value instanceof LoxMap)
+            ((LoxMap) value).appendTo(builder, visiting);
+        else
+            builder.append(Interpreter.stringify(value));
+
+    }
+
+}
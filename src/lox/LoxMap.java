@@ -0,0 +1,231 @@
+package lox;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+class LoxMap extends Owned {
+
+    private static final Object TOMBSTONE = new Object();
+    private static final Object NIL_KEY = new Object();
+
+    // Open addressing with linear probing, values stay unboxed in numbers until the first non-number is stored.
+    private Object[] keys = new Object[16];
+    private double[] numbers = new double[16];
+    private Object[] values;
+    private int size;
+    private int used;
+
+    LoxMap(Interpreter owner) {
+
+        super(owner);
+
+    }
+
+    int size() {
+
+        return size;
+
+    }
+
+    Object get(Object key) {
+
+        key = normalize(key);
+        int slot = find(key);
+        if(slot < 0) return null;
+        return valueAt(slot);
+
+    }
+
+    boolean contains(Object key) {
+
+        return find(normalize(key)) >= 0;
+
+    }
+
+    void put(Object key, Object value) {
+
+        key = normalize(key);
+        int slot = find(key);
+
+        if(slot < 0) {
+
+            if((used + 1) * 4 > keys.length * 3) resize();
+            slot = insertionSlot(key);
+            if(keys[slot] == null) used++;
+            keys[slot] = key;
+            size++;
+
+        }
+
+        store(slot, value);
+
+    }
+
+    Object remove(Object key) {
+
+        key = normalize(key);
+        int slot = find(key);
+        if(slot < 0) return null;
+        Object removed = valueAt(slot);
+        keys[slot] = TOMBSTONE;
+        if(values != null) values[slot] = null;
+        size--;
+        return removed;
+
+    }
+
+    LoxList keys(Interpreter owner) {
+
+        LoxList result = new LoxList(owner, size);
+
+        for(Object key : keys) {
+
+            if(key != null && key != TOMBSTONE)
+                result.add(key == NIL_KEY ? null : key);
+
+        }
+
+        return result;
+
+    }
+
+    private Object valueAt(int slot) {
+
+        if(values != null) return values[slot];
+        return numbers[slot];
+
+    }
+
+    private void store(int slot, Object value) {
+
+        if(values == null) {
+
+            if(value instanceof Double) {
+
+                numbers[slot] = (double) value;
+                return;
+
+            }
+
+            values = new Object[keys.length];
+
+            for(int i = 0; i < keys.length; i++) {
+
+                if(keys[i] != null && keys[i] != TOMBSTONE)
+                    values[i] = numbers[i];
+
+            }
+
+            numbers = null;
+
+        }
+
+        values[slot] = value;
+
+    }
+
+    private int find(Object key) {
+
+        int mask = keys.length - 1;
+
+        for(int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+
+            Object candidate = keys[slot];
+            if(candidate == null) return -1;
+            if(candidate == key || (candidate != TOMBSTONE && candidate.equals(key))) return slot;
+
+        }
+
+    }
+
+    private int insertionSlot(Object key) {
+
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while(keys[slot] != null && keys[slot] != TOMBSTONE)
+            slot = (slot + 1) & mask;
+        return slot;
+
+    }
+
+    private void resize() {
+
+        Object[] oldKeys = keys;
+        double[] oldNumbers = numbers;
+        Object[] oldValues = values;
+        int capacity = size * 4 >= oldKeys.length ? oldKeys.length * 2 : oldKeys.length;
+
+        keys = new Object[capacity];
+        numbers = oldValues == null ? new double[capacity] : null;
+        values = oldValues == null ? null : new Object[capacity];
+        used = size;
+
+        for(int i = 0; i < oldKeys.length; i++) {
+
+            Object key = oldKeys[i];
+            if(key == null || key == TOMBSTONE) continue;
+            int slot = insertionSlot(key);
+            keys[slot] = key;
+            if(oldValues == null)
+                numbers[slot] = oldNumbers[i];
+            else
+                values[slot] = oldValues[i];
+
+        }
+
+    }
+
+    private static int hash(Object key) {
+
+        int hash = key.hashCode();
+        return hash ^ (hash >>> 16);
+
+    }
+
+    private static Object normalize(Object key) {
+
+        if(key == null) return NIL_KEY;
+        if(key instanceof LoxRope) return key.toString();
+        return key;
+
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder builder = new StringBuilder();
+        appendTo(builder, Collections.newSetFromMap(new IdentityHashMap<>()));
+        return builder.toString();
+
+    }
+
+    void appendTo(StringBuilder builder, Set<Object> visiting) {
+
+        if(!visiting.add(this)) {
+
+            builder.append("{...}");
+            return;
+
+        }
+
+        builder.append('{');
+        boolean first = true;
+
+        for(int i = 0; i < keys.length; i++) {
+
+            Object key = keys[i];
+            if(key == null || key == TOMBSTONE) continue;
+            if(!first) builder.append(", ");
+            first = false;
+            builder.append(Interpreter.stringify(key == NIL_KEY ? null : key)).append(": ");
+            LoxList.appendElement(builder, valueAt(i), visiting);
+
+        }
+
+        builder.append('}');
+        visiting.remove(this);
+
+    }
+
+}
@@ -0,0 +1,223 @@
+package lox;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Caches a function's results by argument value. Only nil, booleans, numbers and strings make keys, calls
+// with anything else go straight through since a list or instance could change between calls. Results are held
+// to the same rule, a cached list would be shared by every caller that hits it.
+class LoxMemo implements LoxCallable {
+
+    private static final Object NIL = new Object();
+    private static final int MAX_CAPACITY = 1 << 20;
+    // A LinkedHashMap entry, its key adds a reference per argument.
+    private static final long ENTRY_BYTES = 40;
+
+    private final LoxCallable function;
+    private final int capacity;
+    private final Map<Object, Object> cache;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long bypassed = 0;
+
+    LoxMemo(LoxCallable function, int capacity) {
+
+        this.function = function;
+        this.capacity = capacity;
+        this.cache = new LinkedHashMap<Object, Object>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+
+                if(size() <= capacity) return false;
+                evictions++;
+                return true;
+
+            }
+
+        };
+
+    }
+
+    // A memo for another task, it starts with an empty cache.
+    LoxMemo withFunction(LoxCallable function) {
+
+        return new LoxMemo(function, capacity);
+
+    }
+
+    LoxCallable function() {
+
+        return function;
+
+    }
+
+    static void define(Environment globals) {
+
+        globals.define("memo", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                Object function = arguments.get(0);
+                Object capacity = arguments.get(1);
+                if(!(function instanceof LoxCallable))
+                    throw new NativeError("Expected a function.");
+                if(!(capacity instanceof Double) || (double) capacity != (int) (double) capacity || (double) capacity < 1
+                        || (double) capacity > MAX_CAPACITY)
+                    throw new NativeError(String.format("Cache size must be a whole number from 1 to %d.", MAX_CAPACITY));
+                return new LoxMemo((LoxCallable) function, (int) (double) capacity);
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 2;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+        globals.define("memoStats", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                if(!(arguments.get(0) instanceof LoxMemo))
+                    throw new NativeError("Expected a memoized function.");
+                return ((LoxMemo) arguments.get(0)).stats(interpreter);
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 1;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, List<Object> arguments) {
+
+        Object key = key(arguments);
+
+        if(key == null) {
+
+            synchronized(this) {
+
+                bypassed++;
+
+            }
+
+            return function.call(interpreter, arguments);
+
+        }
+
+        synchronized(this) {
+
+            Object cached = cache.get(key);
+
+            if(cached != null) {
+
+                hits++;
+                return cached == NIL ? null : cached;
+
+            }
+
+            misses++;
+
+        }
+
+        // The lock isn't held while computing, so recursive calls and parallel workers can use the cache too.
+        Object result = function.call(interpreter, arguments);
+        Object entry = keyPart(result);
+        if(entry == null) return result;
+        boolean added;
+
+        synchronized(this) {
+
+            added = cache.put(key, entry) == null;
+
+        }
+
+        if(added) interpreter.allocated(Allocation.ELEMENT, ENTRY_BYTES + arguments.size() * Allocation.ELEMENT.bytes);
+        return result;
+
+    }
+
+    @Override
+    public int arity() {
+
+        return function.arity();
+
+    }
+
+    private synchronized LoxMap stats(Interpreter interpreter) {
+
+        LoxMap stats = new LoxMap(interpreter);
+        stats.put("hits", (double) hits);
+        stats.put("misses", (double) misses);
+        stats.put("evictions", (double) evictions);
+        stats.put("bypassed", (double) bypassed);
+        stats.put("size", (double) cache.size());
+        return stats;
+
+    }
+
+    // Returns null when an argument can't be part of a key.
+    private static Object key(List<Object> arguments) {
+
+        if(arguments.size() == 1) return keyPart(arguments.get(0));
+        Object[] parts = new Object[arguments.size()];
+
+        for(int i = 0; i < parts.length; i++) {
+
+            parts[i] = keyPart(arguments.get(i));
+            if(parts[i] == null) return null;
+
+        }
+
+        return Arrays.asList(parts);
+
+    }
+
+    private static Object keyPart(Object value) {
+
+        if(value == null) return NIL;
+        if(value instanceof Double || value instanceof Boolean) return value;
+        // Ropes and strings with the same text must hit the same entry.
+        if(value instanceof CharSequence) return value.toString();
+        return null;
+
+    }
+
+    @Override
+    public String toString() {
+
+        return String.format("<memo %s>", function);
+
+    }
+
+}
@@ -0,0 +1,61 @@
+package lox;
+
+class LoxNumbers {
+
+    private static final int CACHE_SIZE = 1024;
+    private static final String[] CACHE = new String[CACHE_SIZE];
+
+    // Double.toString switches to scientific notation from 10^7 on, integers below that print plainly.
+    private static final double PLAIN_LIMIT = 1e7;
+
+    static {
+
+        for(int i = 0; i < CACHE_SIZE; i++)
+            CACHE[i] = Integer.toString(i);
+
+    }
+
+    static String format(double value) {
+
+        if(isPlainInteger(value)) {
+
+            if(isNegativeZero(value)) return "-0";
+            long integer = (long) value;
+            if(integer >= 0 && integer < CACHE_SIZE) return CACHE[(int) integer];
+            return Long.toString(integer);
+
+        }
+
+        return Double.toString(value);
+
+    }
+
+    static void appendTo(StringBuilder builder, double value) {
+
+        if(isPlainInteger(value)) {
+
+            if(isNegativeZero(value))
+                builder.append("-0");
+            else
+                builder.append((long) value);
+            return;
+
+        }
+
+        builder.append(value);
+
+    }
+
+    private static boolean isPlainInteger(double value) {
+
+        return value == Math.rint(value) && Math.abs(value) < PLAIN_LIMIT;
+
+    }
+
+    private static boolean isNegativeZero(double value) {
+
+        return Double.doubleToRawLongBits(value) == Long.MIN_VALUE;
+
+    }
+
+}
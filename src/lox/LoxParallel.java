@@ -0,0 +1,266 @@
+package lox;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class LoxParallel {
+
+    // Items are handed out in leaves of this many, every leaf gets its own worker interpreter.
+    private static final int LEAF_SIZE = 16;
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static final long STACK_BYTES = 64L << 20;
+    private static final long POLL_MILLIS = 10;
+    // Leaves run on these rather than the common pool so a big map doesn't hold up the host's own parallel work,
+    // and recursive functions get the same stack depth a spawned task does.
+    private static final ExecutorService workers = Executors.newFixedThreadPool(THREADS, runnable -> {
+
+        Thread thread = new Thread(null, runnable, "lox-parallel", STACK_BYTES);
+        thread.setDaemon(true);
+        return thread;
+
+    });
+
+    static void define(Environment globals) {
+
+        globals.define("parallelMap", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                Object[] results = run(interpreter, arguments.get(0), arguments.get(1), true);
+                LoxList list = new LoxList(interpreter);
+                for(Object result : results) list.add(result);
+                interpreter.allocated(Allocation.ELEMENT, results.length * Allocation.ELEMENT.bytes);
+                return list;
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 2;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+        globals.define("parallelForEach", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                run(interpreter, arguments.get(0), arguments.get(1), false);
+                return null;
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 2;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+    }
+
+    private static Object[] run(Interpreter interpreter, Object function, Object source, boolean collect) {
+
+        if(!(function instanceof LoxCallable) || ((LoxCallable) function).arity() != 1)
+            throw new NativeError("Expected a function that takes one argument.");
+
+        Items items = items(source);
+        Object[] results = collect ? new Object[items.size()] : null;
+        Batch batch = new Batch(interpreter, (LoxCallable) function, items, results);
+        // The calling thread works through leaves as well, so a nested map never waits on a busy pool.
+        for(int i = Math.min(THREADS, batch.leaves - 1); i > 0; i--) workers.execute(batch);
+        batch.run();
+        batch.await();
+        return results;
+
+    }
+
+    private static Items items(Object source) {
+
+        if(source instanceof LoxList) {
+
+            LoxList list = (LoxList) source;
+            int size = list.size();
+            return new Items(size) {
+
+                @Override
+                Object get(int index) {
+
+                    return list.get(index);
+
+                }
+
+            };
+
+        }
+
+        if(source instanceof Double) {
+
+            double count = (double) source;
+            if(count != (int) count || count < 0)
+                throw new NativeError("Expected a list or a non-negative whole number.");
+            return new Items((int) count) {
+
+                @Override
+                Object get(int index) {
+
+                    return (double) index;
+
+                }
+
+            };
+
+        }
+
+        throw new NativeError("Expected a list or a non-negative whole number.");
+
+    }
+
+    private abstract static class Items {
+
+        private final int size;
+
+        Items(int size) {
+
+            this.size = size;
+
+        }
+
+        int size() {
+
+            return size;
+
+        }
+
+        abstract Object get(int index);
+
+    }
+
+    private static class Batch implements Runnable {
+
+        private final Interpreter parent;
+        private final LoxCallable function;
+        private final Items items;
+        private final Object[] results;
+        final int leaves;
+        private final AtomicInteger next = new AtomicInteger();
+        private final CountDownLatch done;
+        private Throwable failure;
+
+        Batch(Interpreter parent, LoxCallable function, Items items, Object[] results) {
+
+            this.parent = parent;
+            this.function = function;
+            this.items = items;
+            this.results = results;
+            this.leaves = (items.size() + LEAF_SIZE - 1) / LEAF_SIZE;
+            this.done = new CountDownLatch(leaves);
+
+        }
+
+        @Override
+        public void run() {
+
+            for(int leaf = next.getAndIncrement(); leaf < leaves; leaf = next.getAndIncrement()) {
+
+                try {
+
+                    // Once a leaf has failed the rest are only counted off.
+                    if(failure() == null) run(leaf * LEAF_SIZE, Math.min(items.size(), (leaf + 1) * LEAF_SIZE));
+
+                } catch (Throwable error) {
+
+                    failed(error);
+
+                } finally {
+
+                    done.countDown();
+
+                }
+
+            }
+
+        }
+
+        private void run(int from, int to) {
+
+            Interpreter worker = new Interpreter(parent);
+
+            try {
+
+                for(int i = from; i < to; i++) {
+
+                    Object result = function.call(worker, Collections.singletonList(items.get(i)));
+                    if(results != null) results[i] = result;
+
+                }
+
+            } finally {
+
+                worker.finish();
+
+            }
+
+        }
+
+        // Leaves another thread claimed may still be running, the script can't go on until they're finished.
+        void await() {
+
+            try {
+
+                while(!done.await(POLL_MILLIS, TimeUnit.MILLISECONDS))
+                    parent.waiting(parent.callStack.line());
+
+            } catch (InterruptedException error) {
+
+                Thread.currentThread().interrupt();
+                throw new ScriptTerminated(parent.callStack.line(), "Script interrupted.");
+
+            }
+
+            Throwable error = failure();
+            if(error instanceof RuntimeException) throw (RuntimeException) error;
+            if(error instanceof Error) throw (Error) error;
+
+        }
+
+        private synchronized Throwable failure() {
+
+            return failure;
+
+        }
+
+        private synchronized void failed(Throwable error) {
+
+            if(failure == null) failure = error;
+
+        }
+
+    }
+
+}
@@ -0,0 +1,89 @@
+package lox;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.FlightRecorder;
+
+// A scanned, parsed and resolved script. Resolution depths live on the tree itself and nothing writes to it
+// after compilation, so one program can be run by any number of contexts at the same time.
+public final class LoxProgram {
+
+    final List<Stmt> statements;
+    private final List<LoxError> errors;
+
+    private LoxProgram(List<Stmt> statements, List<LoxError> errors) {
+
+        this.statements = statements;
+        this.errors = errors;
+
+    }
+
+    public static LoxProgram compile(String source) {
+
+        return compile(source, new ErrorCollector(null), null);
+
+    }
+
+    static LoxProgram compile(String source, ErrorCollector errors, InterpreterMetrics metrics) {
+
+        return compile(source, new Resolver(errors), errors, metrics);
+
+    }
+
+    // The REPL passes the same resolver for every entry so its state carries over from one line to the next.
+    static LoxProgram compile(String source, Resolver resolver, ErrorCollector errors, InterpreterMetrics metrics) {
+
+        long start = System.nanoTime();
+        ScriptPhaseEvent scan = beginPhase("scan");
+        Scanner scanner = new Scanner(source, errors);
+        List<Token> tokens = scanner.scanTokens();
+        endPhase(scan, metrics == null ? null : metrics.scanNanos, start);
+
+        start = System.nanoTime();
+        ScriptPhaseEvent parse = beginPhase("parse");
+        Parser parser = new Parser(tokens, errors);
+        List<Stmt> statements = parser.parse();
+        endPhase(parse, metrics == null ? null : metrics.parseNanos, start);
+        if(errors.hadError()) return new LoxProgram(null, errors.errors());
+
+        start = System.nanoTime();
+        ScriptPhaseEvent resolve = beginPhase("resolve");
+        resolver.resolve(statements);
+        endPhase(resolve, metrics == null ? null : metrics.resolveNanos, start);
+        if(errors.hadError()) return new LoxProgram(null, errors.errors());
+
+        return new LoxProgram(Collections.unmodifiableList(statements), Collections.emptyList());
+
+    }
+
+    public boolean compiled() {
+
+        return statements != null;
+
+    }
+
+    public List<LoxError> errors() {
+
+        return errors;
+
+    }
+
+    // Loading any event class starts Flight Recorder, so nothing touches them unless it's already running.
+    static ScriptPhaseEvent beginPhase(String phase) {
+
+        if(!FlightRecorder.isInitialized()) return null;
+        ScriptPhaseEvent event = new ScriptPhaseEvent(phase);
+        event.begin();
+        return event;
+
+    }
+
+    static void endPhase(ScriptPhaseEvent event, LongAdder total, long start) {
+
+        if(event != null) event.commit();
+        if(total != null) total.add(System.nanoTime() - start);
+
+    }
+
+}
@@ -0,0 +1,122 @@
+package lox;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class LoxRope implements CharSequence {
+
+    // Below this size copying is cheaper than keeping an extra node around.
+    private static final int FLAT_THRESHOLD = 64;
+
+    private volatile CharSequence left;
+    private volatile CharSequence right;
+    private volatile String flat;
+    private final int length;
+    // Characters the flat string will hold that no other rope has been charged for yet.
+    final int charged;
+    // Set once the rope becomes half of another one, joining it again means copying its characters twice.
+    private final AtomicBoolean joined = new AtomicBoolean();
+
+    private LoxRope(CharSequence left, CharSequence right) {
+
+        this.left = left;
+        this.right = right;
+        this.length = left.length() + right.length();
+        this.charged = unchargedLength(left) + unchargedLength(right);
+
+    }
+
+    // Callers check that the combined length fits in an int first.
+    static CharSequence concat(CharSequence left, CharSequence right) {
+
+        if(left.length() == 0) return right;
+        if(right.length() == 0) return left;
+        if(left.length() + right.length() <= FLAT_THRESHOLD)
+            return left.toString().concat(right.toString());
+        return new LoxRope(left, right);
+
+    }
+
+    private static int unchargedLength(CharSequence part) {
+
+        if(part instanceof LoxRope && !((LoxRope) part).joined.getAndSet(true)) return 0;
+        return part.length();
+
+    }
+
+    @Override
+    public int length() {
+
+        return length;
+
+    }
+
+    @Override
+    public char charAt(int index) {
+
+        return toString().charAt(index);
+
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+
+        return toString().subSequence(start, end);
+
+    }
+
+    @Override
+    public String toString() {
+
+        String result = flat;
+        if(result == null) result = flatten();
+        return result;
+
+    }
+
+    private String flatten() {
+
+        StringBuilder builder = new StringBuilder(length);
+        Deque<CharSequence> pending = new ArrayDeque<>();
+        pending.push(this);
+
+        while(!pending.isEmpty()) {
+
+            CharSequence part = pending.pop();
+
+            if(part instanceof LoxRope) {
+
+                LoxRope rope = (LoxRope) part;
+                CharSequence ropeLeft = rope.left;
+                CharSequence ropeRight = rope.right;
+
+                // Children are only cleared after the flat string is published.
+                if(ropeLeft == null || ropeRight == null) {
+
+                    builder.append(rope.flat);
+
+                } else {
+
+                    pending.push(ropeRight);
+                    pending.push(ropeLeft);
+
+                }
+
+            } else {
+
+                builder.append(part);
+
+            }
+
+        }
+
+        String result = builder.toString();
+        flat = result;
+        left = null;
+        right = null;
+        return result;
+
+    }
+
+}
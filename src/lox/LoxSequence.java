@@ -0,0 +1,146 @@
+package lox;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// A lazy, re-iterable series of values. Nothing is computed until a for-in loop or another sequence pulls it.
+abstract class LoxSequence {
+
+    abstract Iterator<Object> iterator(Interpreter interpreter);
+
+    static Iterator<Object> iterator(Interpreter interpreter, Object value) {
+
+        if(value instanceof LoxSequence) return ((LoxSequence) value).iterator(interpreter);
+
+        if(value instanceof LoxList) {
+
+            LoxList list = (LoxList) value;
+
+            return new Iterator<Object>() {
+
+                private int index = 0;
+
+                @Override
+                public boolean hasNext() {
+
+                    return index < list.size();
+
+                }
+
+                @Override
+                public Object next() {
+
+                    if(!hasNext()) throw new NoSuchElementException();
+                    return list.get(index++);
+
+                }
+
+            };
+
+        }
+
+        if(value instanceof LoxMap) return iterator(interpreter, ((LoxMap) value).keys(interpreter));
+        if(value instanceof LoxChannel) return new Pull(() -> ((LoxChannel) value).receive(interpreter, Pull.END));
+
+        if(value instanceof LoxFile) {
+
+            LoxFile file = (LoxFile) value;
+
+            return new Pull(() -> {
+
+                try {
+
+                    String line = file.readLine();
+                    return line == null ? Pull.END : line;
+
+                } catch (IOException error) {
+
+                    throw new NativeError(String.format("I/O error on '%s' (%s).", file.path(), error.getMessage()));
+
+                }
+
+            });
+
+        }
+
+        throw new NativeError("Can only iterate over lists, maps, channels, files and sequences.");
+
+    }
+
+    // Lets a loop or sequence that stops early release whatever the iterator holds, like an open file.
+    static void close(Iterator<Object> iterator) {
+
+        if(iterator instanceof AutoCloseable) {
+
+            try {
+
+                ((AutoCloseable) iterator).close();
+
+            } catch (Exception error) {
+
+                // Sequences only read, once they're abandoned there's nothing a failed close could lose.
+
+            }
+
+        }
+
+    }
+
+    @Override
+    public String toString() {
+
+        return "<sequence>";
+
+    }
+
+    interface Source {
+
+        // Returns the next value, or Pull.END once there are no more.
+        Object pull();
+
+    }
+
+    // Adapts sources that return their next value until they run out. The end has its own marker because nil is a
+    // value a channel can carry.
+    static class Pull implements Iterator<Object> {
+
+        static final Object END = new Object();
+
+        private final Source source;
+        private Object next = null;
+        private boolean ready = false;
+
+        Pull(Source source) {
+
+            this.source = source;
+
+        }
+
+        @Override
+        public boolean hasNext() {
+
+            // At the end ready stays set, so a finished source isn't pulled again.
+            if(!ready) {
+
+                next = source.pull();
+                ready = true;
+
+            }
+
+            return next != END;
+
+        }
+
+        @Override
+        public Object next() {
+
+            if(!hasNext()) throw new NoSuchElementException();
+            ready = false;
+            return next;
+
+        }
+
+    }
+
+}
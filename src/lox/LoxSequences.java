@@ -0,0 +1,430 @@
+package lox;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+class LoxSequences {
+
+    static void define(Environment globals) {
+
+        globals.define("range", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                double start = number(arguments.get(0));
+                double end = number(arguments.get(1));
+
+                return new LoxSequence() {
+
+                    @Override
+                    Iterator<Object> iterator(Interpreter interpreter) {
+
+                        return new Iterator<Object>() {
+
+                            private double next = start;
+
+                            @Override
+                            public boolean hasNext() {
+
+                                return next < end;
+
+                            }
+
+                            @Override
+                            public Object next() {
+
+                                if(!hasNext()) throw new NoSuchElementException();
+                                interpreter.step(interpreter.callStack.line());
+                                return next++;
+
+                            }
+
+                        };
+
+                    }
+
+                };
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 2;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+        globals.define("mapped", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                Object source = arguments.get(0);
+                LoxCallable function = function(arguments.get(1));
+
+                return new LoxSequence() {
+
+                    @Override
+                    Iterator<Object> iterator(Interpreter interpreter) {
+
+                        Iterator<Object> items = LoxSequence.iterator(interpreter, source);
+
+                        return new Stage(items) {
+
+                            @Override
+                            public boolean hasNext() {
+
+                                return items.hasNext();
+
+                            }
+
+                            @Override
+                            public Object next() {
+
+                                Object item = items.next();
+                                interpreter.step(interpreter.callStack.line());
+                                return function.call(interpreter, Collections.singletonList(item));
+
+                            }
+
+                        };
+
+                    }
+
+                };
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 2;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+        globals.define("filtered", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                Object source = arguments.get(0);
+                LoxCallable predicate = function(arguments.get(1));
+
+                return new LoxSequence() {
+
+                    @Override
+                    Iterator<Object> iterator(Interpreter interpreter) {
+
+                        Iterator<Object> items = LoxSequence.iterator(interpreter, source);
+
+                        return new Stage(items) {
+
+                            private Object next;
+                            private boolean ready = false;
+
+                            @Override
+                            public boolean hasNext() {
+
+                                while(!ready && items.hasNext()) {
+
+                                    Object item = items.next();
+                                    interpreter.step(interpreter.callStack.line());
+
+                                    if(Interpreter.isTruthy(predicate.call(interpreter, Collections.singletonList(item)))) {
+
+                                        next = item;
+                                        ready = true;
+
+                                    }
+
+                                }
+
+                                return ready;
+
+                            }
+
+                            @Override
+                            public Object next() {
+
+                                if(!hasNext()) throw new NoSuchElementException();
+                                ready = false;
+                                return next;
+
+                            }
+
+                        };
+
+                    }
+
+                };
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 2;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+        globals.define("take", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                Object source = arguments.get(0);
+                double count = number(arguments.get(1));
+
+                return new LoxSequence() {
+
+                    @Override
+                    Iterator<Object> iterator(Interpreter interpreter) {
+
+                        Iterator<Object> items = LoxSequence.iterator(interpreter, source);
+
+                        return new Stage(items) {
+
+                            private int taken = 0;
+
+                            @Override
+                            public boolean hasNext() {
+
+                                if(taken < count && items.hasNext()) return true;
+                                // Stop the source as soon as enough was taken, lines() closes its file here.
+                                close();
+                                return false;
+
+                            }
+
+                            @Override
+                            public Object next() {
+
+                                if(!hasNext()) throw new NoSuchElementException();
+                                taken++;
+                                return items.next();
+
+                            }
+
+                        };
+
+                    }
+
+                };
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 2;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+        globals.define("lines", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                if(!interpreter.fileAccess) throw new NativeError("File access is disabled.");
+                Object path = arguments.get(0);
+                if(!(path instanceof CharSequence)) throw new NativeError("Expected a string.");
+
+                return new LoxSequence() {
+
+                    @Override
+                    Iterator<Object> iterator(Interpreter interpreter) {
+
+                        LoxFile file;
+
+                        try {
+
+                            file = new LoxFile(path.toString(), "m", interpreter.budget());
+
+                        } catch (IOException error) {
+
+                            throw new NativeError(String.format("Can't open '%s' (%s).", path, error.getMessage()));
+
+                        }
+
+                        interpreter.allocated(Allocation.FILE, Allocation.FILE.bytes + file.bufferBytes());
+                        return new Lines(file);
+
+                    }
+
+                };
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 1;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+        globals.define("collect", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                LoxList list = new LoxList(interpreter);
+                Iterator<Object> items = LoxSequence.iterator(interpreter, arguments.get(0));
+
+                try {
+
+                    while(items.hasNext()) {
+
+                        Object item = items.next();
+                        interpreter.step(interpreter.callStack.line());
+                        list.add(item);
+                        interpreter.allocated(Allocation.ELEMENT, Allocation.ELEMENT.bytes);
+
+                    }
+
+                } finally {
+
+                    LoxSequence.close(items);
+
+                }
+
+                return list;
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 1;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+    }
+
+    // A step of a pipeline, closing it closes everything upstream.
+    private abstract static class Stage implements Iterator<Object>, AutoCloseable {
+
+        private final Iterator<Object> source;
+
+        Stage(Iterator<Object> source) {
+
+            this.source = source;
+
+        }
+
+        @Override
+        public void close() {
+
+            LoxSequence.close(source);
+
+        }
+
+    }
+
+    private static class Lines extends LoxSequence.Pull implements AutoCloseable {
+
+        private final LoxFile file;
+
+        Lines(LoxFile file) {
+
+            super(() -> {
+
+                try {
+
+                    String line = file.readLine();
+                    if(line != null) return line;
+                    file.close();
+                    return LoxSequence.Pull.END;
+
+                } catch (IOException error) {
+
+                    throw new NativeError(String.format("I/O error on '%s' (%s).", file.path(), error.getMessage()));
+
+                }
+
+            });
+            this.file = file;
+
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            file.close();
+
+        }
+
+    }
+
+    private static double number(Object value) {
+
+        if(value instanceof Double) return (double) value;
+        throw new NativeError("Expected a number.");
+
+    }
+
+    private static LoxCallable function(Object value) {
+
+        if(value instanceof LoxCallable && ((LoxCallable) value).arity() == 1) return (LoxCallable) value;
+        throw new NativeError("Expected a function that takes one argument.");
+
+    }
+
+}
@@ -0,0 +1,399 @@
+package lox;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+
+class LoxTasks {
+
+    private static final class Executor {
+
+        static final ExecutorService INSTANCE = VirtualThreads.newExecutor();
+
+    }
+
+    static void define(Environment globals) {
+
+        globals.define("spawn", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                Object function = arguments.get(0);
+                if(!(function instanceof LoxCallable) || ((LoxCallable) function).arity() != 0)
+                    throw new NativeError("Expected a function that takes no arguments.");
+
+                interpreter.step(interpreter.callStack.line());
+                interpreter.allocated(Allocation.TASK, Allocation.TASK.bytes);
+                Copier copier = new Copier(interpreter);
+                Environment globals = copier.environment(interpreter.globals);
+                LoxCallable task = (LoxCallable) copier.share(function);
+                LoxChannel result = new LoxChannel(1);
+                Interpreter worker = new Interpreter(interpreter, globals);
+                // Claimed up front so the task's own parallel workers can't take its globals over.
+                globals.modifiedBy(worker);
+
+                execute(interpreter, () -> {
+
+                    try {
+
+                        Object value = task.call(worker, Collections.emptyList());
+                        result.send(worker, new Copier(worker).share(value));
+                        result.close();
+
+                    } catch (RuntimeError error) {
+
+                        result.fail(String.format("Spawned task failed: %s", error.getMessage()));
+
+                    } catch (NativeError error) {
+
+                        result.fail(String.format("Spawned task failed: %s", error.getMessage()));
+
+                    } catch (StackOverflowError error) {
+
+                        result.fail("Spawned task failed: Stack overflow.");
+
+                    } catch (Throwable error) {
+
+                        // Anything else would be kept by the future and leave the receiver waiting forever.
+                        result.fail(String.format("Spawned task failed: %s", error));
+
+                    } finally {
+
+                        worker.finish();
+
+                    }
+
+                });
+
+                return result;
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 1;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+        globals.define("Channel", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                Object capacity = arguments.get(0);
+                if(!(capacity instanceof Double) || (double) capacity != (int) (double) capacity || (double) capacity < 1)
+                    throw new NativeError("Channel capacity must be a positive whole number.");
+                return new LoxChannel((int) (double) capacity);
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 1;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+        globals.define("send", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                channel(arguments.get(0)).send(interpreter, new Copier(interpreter).share(arguments.get(1)));
+                return null;
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 2;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+        globals.define("receive", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                return channel(arguments.get(0)).receive(interpreter);
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 1;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+        globals.define("close", new LoxCallable() {
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+
+                Object value = arguments.get(0);
+                if(value instanceof LoxFile)
+                    LoxFiles.close((LoxFile) value);
+                else
+                    channel(value).close();
+                return null;
+
+            }
+
+            @Override
+            public int arity() {
+
+                return 1;
+
+            }
+
+            @Override
+            public String toString() {
+
+                return "<native fun>";
+
+            }
+
+        });
+
+    }
+
+    static void execute(Runnable task) {
+
+        Executor.INSTANCE.execute(task);
+
+    }
+
+    // Runs a task that belongs to the interpreter's run, it's interrupted when the run ends or is interrupted.
+    static void execute(Interpreter interpreter, Runnable task) {
+
+        Budget budget = interpreter.budget();
+        FutureTask<Void> future = new FutureTask<Void>(task, null) {
+
+            @Override
+            protected void done() {
+
+                budget.finished(this);
+
+            }
+
+        };
+
+        budget.started(future);
+        Executor.INSTANCE.execute(future);
+
+    }
+
+    private static LoxChannel channel(Object value) {
+
+        if(value instanceof LoxChannel) return (LoxChannel) value;
+        throw new NativeError("Expected a channel.");
+
+    }
+
+    // Copies values so the receiving task can't observe later changes made by the sender. Lists, maps, instances
+    // and classes are copied, and so are functions with the environments they close over, except that a global
+    // environment only gets the names its copied functions use. Channels, files and immutable values are passed as
+    // they are. Each copy is filled in from a queue rather than recursively, so deeply nested values can't run the
+    // Java stack out. The copies are charged to the sender.
+    private static final class Copier {
+
+        private final Interpreter interpreter;
+        private final Map<Object, Object> copies = new IdentityHashMap<>();
+        private final Map<Environment, Set<String>> globalsCopied = new IdentityHashMap<>();
+        private final Deque<Runnable> pending = new ArrayDeque<>();
+
+        Copier(Interpreter interpreter) {
+
+            this.interpreter = interpreter;
+
+        }
+
+        Object share(Object value) {
+
+            Object copy = copy(value);
+            while(!pending.isEmpty()) pending.poll().run();
+            return copy;
+
+        }
+
+        // Returns the copy straight away and queues filling it in, so anything it refers to finds it in copies.
+        private Object copy(Object value) {
+
+            if(value instanceof LoxGenerator)
+                throw new NativeError("Generators can't be shared between tasks.");
+            if(value instanceof LoxSequence)
+                throw new NativeError("Sequences can't be shared between tasks.");
+            if(value instanceof LoxRope) return value.toString();
+
+            Object copy = copies.get(value);
+            if(copy != null) return copy;
+
+            if(value instanceof LoxList) {
+
+                LoxList list = (LoxList) value;
+                LoxList result = new LoxList(null, list.size());
+                copies.put(value, result);
+                interpreter.allocated(Allocation.ELEMENT, list.size() * Allocation.ELEMENT.bytes);
+                pending.add(() -> {
+
+                    for(int i = 0; i < list.size(); i++) result.add(copy(list.get(i)));
+
+                });
+                return result;
+
+            }
+
+            if(value instanceof LoxMap) {
+
+                LoxMap map = (LoxMap) value;
+                LoxMap result = new LoxMap(null);
+                copies.put(value, result);
+                interpreter.allocated(Allocation.ELEMENT, map.size() * Allocation.ELEMENT.bytes);
+                pending.add(() -> {
+
+                    LoxList keys = map.keys(null);
+
+                    for(int i = 0; i < keys.size(); i++) {
+
+                        Object key = keys.get(i);
+                        result.put(copy(key), copy(map.get(key)));
+
+                    }
+
+                });
+                return result;
+
+            }
+
+            if(value instanceof LoxInstance) {
+
+                LoxInstance instance = (LoxInstance) value;
+                LoxInstance result = new LoxInstance((LoxClass) copy(instance.klass), null);
+                copies.put(value, result);
+                interpreter.allocated(Allocation.INSTANCE, Allocation.INSTANCE.bytes + instance.fields.size() * Allocation.FIELD.bytes);
+                pending.add(() -> instance.fields.forEach((name, field) -> result.fields.put(name, copy(field))));
+                return result;
+
+            }
+
+            if(value instanceof LoxClass) {
+
+                LoxClass klass = (LoxClass) value;
+                Map<String, LoxFunction> methods = new HashMap<>();
+                LoxClass superclass = klass.superclass == null ? null : (LoxClass) copy(klass.superclass);
+                LoxClass result = new LoxClass(klass.name, superclass, methods);
+                copies.put(value, result);
+                pending.add(() -> klass.methods.forEach((name, method) -> methods.put(name, (LoxFunction) copy(method))));
+                return result;
+
+            }
+
+            if(value instanceof LoxFunction) {
+
+                LoxFunction function = (LoxFunction) value;
+                interpreter.allocated(Allocation.CLOSURE, Allocation.CLOSURE.bytes);
+                LoxFunction result = function.withClosure(environment(function.closure()));
+                copies.put(value, result);
+                Environment global = function.closure();
+                while(global.enclosing != null) global = global.enclosing;
+                Environment globals = global;
+                pending.add(() -> {
+
+                    for(String name : function.globals()) global(globals, name);
+
+                });
+                return result;
+
+            }
+
+            if(value instanceof LoxMemo) {
+
+                LoxMemo memo = (LoxMemo) value;
+                LoxMemo result = memo.withFunction((LoxCallable) copy(memo.function()));
+                copies.put(value, result);
+                return result;
+
+            }
+
+            return value;
+
+        }
+
+        // Only the chain of enclosing environments is copied here, their variables are queued like any other value.
+        Environment environment(Environment environment) {
+
+            Object copy = copies.get(environment);
+            if(copy != null) return (Environment) copy;
+
+            Environment enclosing = environment.enclosing == null ? null : environment(environment.enclosing);
+            Environment result = new Environment(enclosing, null);
+            copies.put(environment, result);
+            interpreter.allocated(Allocation.ENVIRONMENT, Allocation.ENVIRONMENT.bytes);
+            if(environment.enclosing != null)
+                pending.add(() -> environment.forEach((name, value) -> result.define(name, copy(value))));
+            return result;
+
+        }
+
+        // A global generator or sequence is left out of the copy rather than failing the spawn.
+        private void global(Environment globals, String name) {
+
+            if(!globals.defines(name)) return;
+            Object value = globals.getAt(0, name);
+            if(value instanceof LoxGenerator || value instanceof LoxSequence) return;
+            if(globalsCopied.computeIfAbsent(globals, key -> new HashSet<>()).add(name))
+                environment(globals).define(name, copy(value));
+
+        }
+
+    }
+
+}
@@ -0,0 +1,11 @@
+package lox;
+
+public class NativeError extends RuntimeException {
+
+    NativeError(String message) {
+
+        super(message);
+
+    }
+
+}
@@ -0,0 +1,31 @@
+package lox;
+
+// Base of the values a script can change in place. The interpreter that made one owns it, and parallel workers and
+// spawned tasks may only change what they or their own workers made, so values reachable from several threads are
+// never written to. Copies handed over by spawn and send start out unowned and belong to whoever changes them first.
+abstract class Owned {
+
+    private Interpreter owner;
+
+    Owned(Interpreter owner) {
+
+        this.owner = owner;
+
+    }
+
+    final void modifiedBy(Interpreter interpreter) {
+
+        if(owner == interpreter || interpreter.isRoot()) return;
+
+        synchronized(this) {
+
+            if(owner == null) owner = interpreter;
+            if(interpreter.owns(owner)) return;
+
+        }
+
+        throw new RuntimeError(interpreter.callStack.line(), "Can't modify a value shared with another task or worker.");
+
+    }
+
+}
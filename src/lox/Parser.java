@@ -8,14 +8,19 @@ import static lox.TokenType.*;
 
 public class Parser {
 
+    // Statements are numbered from 0 within each program so per-node counters can live in small flat arrays.
+    private int statementIds = 0;
     private final List<Token> tokens;
+    private final ErrorCollector errors;
     private int current = 0;
+    private boolean yielded = false;
 
     private static class ParseError extends RuntimeException {}
 
-    public Parser(List<Token> tokens) {
+    public Parser(List<Token> tokens, ErrorCollector errors) {
 
         this.tokens = tokens;
+        this.errors = errors;
 
     }
 
@@ -31,6 +36,14 @@ public class Parser {
 
     }
 
+    private boolean isForIn(int offset) {
+
+        if(current + offset + 1 >= tokens.size()) return false;
+        Token next = tokens.get(current + offset + 1);
+        return tokens.get(current + offset).type == IDENTIFIER && next.type == IDENTIFIER && next.lexeme.equals("in");
+
+    }
+
     private Token previous() {
 
         return tokens.get(current - 1);
@@ -77,7 +90,7 @@ public class Parser {
 
     private ParseError error(Token token, String message) {
 
-        Lox.error(token, message);
+        errors.error(token, message);
         return new ParseError();
 
     }
@@ -126,13 +139,15 @@ public class Parser {
 
     private Stmt declaration() {
 
+        int line = peek().line;
+
         try {
 
-            if(match(VAR)) return varDeclaration();
-            if(match(FUN)) return function("function");
-            if(match(CLASS)) return classDeclaration();
-            if(match(LEFT_BRACE)) return new Stmt.Block(block());
-            return statement();
+            if(match(VAR)) return located(line, varDeclaration());
+            if(match(FUN)) return located(line, function("function"));
+            if(match(CLASS)) return located(line, classDeclaration());
+            if(match(LEFT_BRACE)) return located(line, new Stmt.Block(block()));
+            return located(line, statement());
 
         } catch (ParseError error) {
 
@@ -163,8 +178,22 @@ public class Parser {
 
         consume(RIGHT_PAREN, "Expected ')' after the parameters list.");
         consume(LEFT_BRACE, String.format("Expected before %s body.", kind));
+        // A yield makes the function it's directly in a generator, not the functions around it.
+        boolean enclosingYielded = yielded;
+        yielded = false;
         List<Stmt> body = block();
-        return new Stmt.Function(name, parameters, body);
+        boolean generator = yielded;
+        yielded = enclosingYielded;
+        return located(name.line, new Stmt.Function(name, parameters, body, generator));
+
+    }
+
+    private <T extends Stmt> T located(int line, T stmt) {
+
+        // A statement that's already located keeps its id, lines start at 1 so 0 means it hasn't been seen.
+        if(stmt.line == 0) stmt.id = statementIds++;
+        stmt.line = line;
+        return stmt;
 
     }
 
@@ -198,10 +227,21 @@ public class Parser {
         if(match(FOR)) return forStatement();
         if(match(PRINT)) return printStatement();
         if(match(RETURN)) return returnStatement();
+        if(match(YIELD)) return yieldStatement();
         return expressionStatement();
 
     }
 
+    private Stmt yieldStatement() {
+
+        Token keyword = previous();
+        yielded = true;
+        Expr value = check(SEMICOLON) ? new Expr.Literal(null) : expression();
+        consume(SEMICOLON, "Expected ';' after yield value.");
+        return new Stmt.Yield(keyword, value);
+
+    }
+
     private Stmt returnStatement() {
 
         Token keyword = previous();
@@ -215,15 +255,29 @@ public class Parser {
 
     private Stmt forStatement() {
 
+        int line = previous().line;
         consume(LEFT_PAREN, "Expected '(' after 'for'.");
 
+        // 'in' is only a keyword right after the loop variable, so existing scripts can keep using it as a name.
+        if(isForIn(0) || (check(VAR) && isForIn(1))) {
+
+            match(VAR);
+            Token name = consume(IDENTIFIER, "Expected loop variable name.");
+            advance();
+            Expr iterable = expression();
+            consume(RIGHT_PAREN, "Expected ')' after for-in clause.");
+            Stmt body = declaration();
+            return located(line, new Stmt.ForIn(name, iterable, body));
+
+        }
+
         Stmt initializer;
         if(match(SEMICOLON))
             initializer = null;
         else if (match(VAR))
-            initializer = varDeclaration();
+            initializer = located(line, varDeclaration());
         else
-            initializer = expressionStatement();
+            initializer = located(line, expressionStatement());
 
         Expr condition = null;
         if(!check(SEMICOLON))
@@ -239,18 +293,18 @@ public class Parser {
 
         if(increment != null) {
 
-            body = new Stmt.Block(Arrays.asList(
+            body = located(line, new Stmt.Block(Arrays.asList(
                     body,
-                    new Stmt.Expression(increment)
-            ));
+                    located(line, new Stmt.Expression(increment))
+            )));
 
         }
 
         if(condition == null) condition = new Expr.Literal(true);
-        body = new Stmt.While(condition, body);
+        body = located(line, new Stmt.While(condition, body));
 
         if(initializer != null)
-            body = new Stmt.Block(Arrays.asList(initializer, body));
+            body = located(line, new Stmt.Block(Arrays.asList(initializer, body)));
 
         return body;
 
@@ -0,0 +1,139 @@
+package lox;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+class Profiler {
+
+    private final CallStack stack;
+    private final long intervalMillis;
+    private final Map<String, Long> stacks = new HashMap<>();
+    private final Map<String, long[]> functions = new HashMap<>();
+    private long samples = 0;
+    private Thread sampler;
+    private volatile boolean running;
+
+    Profiler(CallStack stack, long intervalMillis) {
+
+        this.stack = stack;
+        this.intervalMillis = intervalMillis;
+
+    }
+
+    void start() {
+
+        running = true;
+        sampler = new Thread(this::sample, "lox-profiler");
+        sampler.setDaemon(true);
+        sampler.start();
+
+    }
+
+    void stop() {
+
+        running = false;
+
+        try {
+
+            sampler.join();
+
+        } catch (InterruptedException error) {
+
+            Thread.currentThread().interrupt();
+
+        }
+
+    }
+
+    private void sample() {
+
+        while(running) {
+
+            try {
+
+                Thread.sleep(intervalMillis);
+
+            } catch (InterruptedException error) {
+
+                return;
+
+            }
+
+            record(stack.snapshot());
+
+        }
+
+    }
+
+    private void record(CallStack.Frame[] frames) {
+
+        StringBuilder collapsed = new StringBuilder();
+        Set<String> seen = new HashSet<>();
+
+        for(int i = 0; i < frames.length; i++) {
+
+            if(i > 0) collapsed.append(';');
+            collapsed.append(frames[i]);
+
+            // Recursive frames only count once towards a function's total time.
+            long[] times = functions.computeIfAbsent(frames[i].function, function -> new long[2]);
+            if(seen.add(frames[i].function)) times[1]++;
+            if(i == frames.length - 1) times[0]++;
+
+        }
+
+        stacks.merge(collapsed.toString(), 1L, Long::sum);
+        samples++;
+
+    }
+
+    void writeCollapsed(Path path) throws IOException {
+
+        try(PrintWriter writer = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+
+            for(Map.Entry<String, Long> entry : stacks.entrySet())
+                writer.printf("%s %d\n", entry.getKey(), entry.getValue());
+
+        }
+
+    }
+
+    void report(PrintStream stream, int limit) {
+
+        List<Map.Entry<String, long[]>> ranked = new ArrayList<>(functions.entrySet());
+        ranked.sort((left, right) -> Long.compare(right.getValue()[0], left.getValue()[0]));
+
+        stream.printf("%d samples every %d ms\n", samples, intervalMillis);
+        stream.printf("%-32s %10s %8s %10s %8s\n", "function", "self", "self %", "total", "total %");
+
+        for(int i = 0; i < Math.min(limit, ranked.size()); i++) {
+
+            long[] times = ranked.get(i).getValue();
+            stream.printf(
+                    "%-32s %10d %7.2f%% %10d %7.2f%%\n",
+                    ranked.get(i).getKey(),
+                    times[0], percent(times[0]),
+                    times[1], percent(times[1])
+            );
+
+        }
+
+    }
+
+    private double percent(long count) {
+
+        return samples == 0 ? 0 : 100.0 * count / samples;
+
+    }
+
+}
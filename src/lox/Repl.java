@@ -0,0 +1,106 @@
+package lox;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+class Repl {
+
+    private final LoxContext context;
+    // One resolver for the whole session, resolution state carries over between entries.
+    private final Resolver resolver;
+    private final StringBuilder buffer = new StringBuilder();
+
+    Repl(LoxContext context) {
+
+        this.context = context;
+        this.resolver = new Resolver(context.errors);
+
+    }
+
+    void run(BufferedReader reader) throws IOException {
+
+        System.out.println("Press Ctrl+D to exit");
+
+        for(;;) {
+
+            System.out.print(buffer.length() == 0 ? "> " : "... ");
+            String line = reader.readLine();
+            if(line == null) break;
+
+            // A blank line flushes whatever has been buffered so far, even if it's still unbalanced.
+            if(buffer.length() > 0 && line.isBlank()) {
+
+                submit();
+                continue;
+
+            }
+
+            buffer.append(line).append('\n');
+            if(isComplete(buffer)) submit();
+
+        }
+
+    }
+
+    private void submit() {
+
+        String source = buffer.toString();
+        buffer.setLength(0);
+        context.run(source, resolver);
+
+    }
+
+    static boolean isComplete(CharSequence source) {
+
+        int depth = 0;
+        boolean inString = false;
+        boolean inComment = false;
+
+        for(int i = 0; i < source.length(); i++) {
+
+            char c = source.charAt(i);
+            char next = i + 1 < source.length() ? source.charAt(i + 1) : '\0';
+
+            if(inString) {
+
+                if(c == '"') inString = false;
+
+            } else if(inComment) {
+
+                if(c == '*' && next == '/') {
+
+                    inComment = false;
+                    i++;
+
+                }
+
+            } else if(c == '/' && next == '/') {
+
+                while(i < source.length() && source.charAt(i) != '\n') i++;
+
+            } else if(c == '/' && next == '*') {
+
+                inComment = true;
+                i++;
+
+            } else if(c == '"') {
+
+                inString = true;
+
+            } else if(c == '(' || c == '{') {
+
+                depth++;
+
+            } else if(c == ')' || c == '}') {
+
+                depth--;
+
+            }
+
+        }
+
+        return depth <= 0 && !inString && !inComment;
+
+    }
+
+}
@@ -1,5 +1,6 @@
 package lox;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -7,14 +8,15 @@ import java.util.Stack;
 
 public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 
-    private final Interpreter interpreter;
+    private final ErrorCollector errors;
     private final Stack<Map<String, Boolean>> scopes = new Stack<>();
     private FunctionType currentFunction = FunctionType.NONE;
     private ClassType currentClass = ClassType.NONE;
+    private final Stack<Stmt.Function> functions = new Stack<>();
 
-    public Resolver(Interpreter interpreter) {
+    public Resolver(ErrorCollector errors) {
 
-        this.interpreter = interpreter;
+        this.errors = errors;
 
     }
 
@@ -43,7 +45,7 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     public Void visitVariableExpr(Expr.Variable expr) {
 
         if(!scopes.isEmpty() && scopes.peek().get(expr.name.lexeme) == Boolean.FALSE)
-            Lox.error(
+            errors.error(
                     expr.name,
                     "Can't read local variable in its own initializer. (يا عم لسه معرفش ده عيعمل ايه)"
             );
@@ -64,6 +66,7 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     @Override
     public Void visitFunctionStmt(Stmt.Function stmt) {
 
+        captureEnclosing();
         declare(stmt.name);
         define(stmt.name);
         resolveFunction(stmt, FunctionType.FUNCTION);
@@ -101,17 +104,22 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     public Void visitReturnStmt(Stmt.Return stmt) {
 
         if(currentFunction == FunctionType.NONE)
-            Lox.error(
+            errors.error(
                     stmt.name,
                     "Can't return from top-level code. (كيف عنعمل ريتورن من الفوكن فاكنشن دي)"
             );
         if(stmt.initializer != null) {
 
             if(currentFunction == FunctionType.INITIALIZER)
-                Lox.error(
+                errors.error(
                         stmt.name,
                         "Can't return a value from an initializer."
                 );
+            if(currentFunction == FunctionType.GENERATOR)
+                errors.error(
+                        stmt.name,
+                        "Can't return a value from a generator."
+                );
             resolve(stmt.initializer);
 
         }
@@ -129,6 +137,31 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 
     }
 
+    @Override
+    public Void visitYieldStmt(Stmt.Yield stmt) {
+
+        if(currentFunction == FunctionType.NONE)
+            errors.error(stmt.keyword, "Can't yield from top-level code.");
+        if(currentFunction == FunctionType.INITIALIZER)
+            errors.error(stmt.keyword, "Can't yield from an initializer.");
+        resolve(stmt.value);
+        return null;
+
+    }
+
+    @Override
+    public Void visitForInStmt(Stmt.ForIn stmt) {
+
+        resolve(stmt.iterable);
+        beginScope();
+        declare(stmt.name);
+        define(stmt.name);
+        resolve(stmt.body);
+        endScope();
+        return null;
+
+    }
+
     @Override
     public Void visitBinaryExpr(Expr.Binary expr) {
 
@@ -185,10 +218,11 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 
         ClassType enclosingClass = currentClass;
         currentClass = ClassType.CLASS;
+        captureEnclosing();
         declare(stmt.name);
         define(stmt.name);
         if(stmt.superclass != null && stmt.superclass.name.lexeme.equals(stmt.name.lexeme))
-            Lox.error(
+            errors.error(
                     stmt.superclass.name,
                     "A class can't inherit from itself."
             );
@@ -242,7 +276,7 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     public Void visitThisExpr(Expr.This expr) {
 
         if(currentClass == ClassType.NONE)
-            Lox.error(
+            errors.error(
                     expr.keyword,
                     "Can't use 'this' keyword outside of a class."
             );
@@ -255,12 +289,12 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     public Void visitSuperExpr(Expr.Super expr) {
 
         if(currentClass == ClassType.NONE)
-            Lox.error(
+            errors.error(
                     expr.keyword,
                     "Can't use super outside of a class"
             );
         else if(currentClass != ClassType.SUBCLASS)
-            Lox.error(
+            errors.error(
                     expr.keyword,
                     "Can't use 'super' in a class with no superclass. (مين ابويا؟؟)"
             );
@@ -305,7 +339,7 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         if(scopes.isEmpty()) return;
         Map<String, Boolean> scope = scopes.peek();
         if(scope.containsKey(name.lexeme))
-            Lox.error(
+            errors.error(
                     name,
                     String.format("Variable '%s' is already defined.(شوفت الفاريبول ده فين جبل اكده؟)", name.lexeme)
             );
@@ -326,19 +360,35 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 
             if(scopes.get(i).containsKey(name.lexeme)) {
 
-                interpreter.resolve(expr, scopes.size() - 1 - i);
+                expr.depth = scopes.size() - 1 - i;
                 return;
 
             }
 
         }
 
+        // Spawned tasks only copy the globals their functions name.
+        for(Stmt.Function function : functions)
+            if(!function.globals.contains(name.lexeme)) function.globals.add(name.lexeme);
+
+    }
+
+    // A nested function or class closes over the environment of every function around it.
+    private void captureEnclosing() {
+
+        for(Stmt.Function function : functions)
+            function.pooled = false;
+
     }
 
     private void resolveFunction(Stmt.Function stmt, FunctionType type) {
 
         FunctionType enclosingFunction = currentFunction;
-        currentFunction = type;
+        currentFunction = stmt.generator && type != FunctionType.INITIALIZER ? FunctionType.GENERATOR : type;
+        // Until a closure or class inside it proves otherwise, nothing outlives a call of this function.
+        stmt.pooled = !stmt.generator;
+        stmt.globals = new ArrayList<>();
+        functions.push(stmt);
         beginScope();
 
         for(Token param : stmt.params) {
@@ -350,6 +400,7 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 
         resolve(stmt.body);
         endScope();
+        functions.pop();
         currentFunction = enclosingFunction;
 
     }
@@ -3,6 +3,8 @@ package lox;
 public class RuntimeError extends RuntimeException {
 
     final Token token;
+    // Filled in by the innermost Lox call the error passes through, outermost frame first.
+    CallStack.Frame[] trace = null;
 
     RuntimeError(Token token, String message) {
 
@@ -11,4 +13,10 @@ public class RuntimeError extends RuntimeException {
 
     }
 
+    RuntimeError(int line, String message) {
+
+        this(new Token(TokenType.NIL, "", null, line), message);
+
+    }
+
 }
@@ -0,0 +1,28 @@
+package lox;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("lox.RuntimeError")
+@Label("Runtime Error")
+@Category("Lox")
+@Description("A runtime error reported to the user")
+class RuntimeErrorEvent extends Event {
+
+    @Label("Message")
+    final String message;
+
+    @Label("Line")
+    final int line;
+
+    RuntimeErrorEvent(String message, int line) {
+
+        this.message = message;
+        this.line = line;
+
+    }
+
+}
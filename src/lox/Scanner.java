@@ -10,6 +10,7 @@ import static lox.TokenType.*;
 public class Scanner {
 
     private final String source;
+    private final ErrorCollector errors;
     private final List<Token> tokens = new ArrayList<>();
     private int start = 0;
     private int current = 0;
@@ -35,12 +36,14 @@ public class Scanner {
         keywords.put("true", TRUE);
         keywords.put("var", VAR);
         keywords.put("while", WHILE);
+        keywords.put("yield", YIELD);
 
     }
 
-    Scanner(String source) {
+    Scanner(String source, ErrorCollector errors) {
 
         this.source = source;
+        this.errors = errors;
 
     }
 
@@ -136,7 +139,7 @@ public class Scanner {
                 else if (isAlpha(c))
                     identifier();
                 else
-                    Lox.error(line, "Unexpected character");
+                    errors.error(line, "Unexpected character");
                 break;
 
         }
@@ -207,7 +210,7 @@ public class Scanner {
 
         if(isAtEnd()) {
 
-            Lox.error(line, "Undetermined multiline comment.");
+            errors.error(line, "Undetermined multiline comment.");
             return;
 
         }
@@ -229,7 +232,7 @@ public class Scanner {
 
         if(isAtEnd()) {
 
-            Lox.error(line, "Undetermined string.");
+            errors.error(line, "Undetermined string.");
             return;
 
         }
@@ -237,7 +240,7 @@ public class Scanner {
         advance();
 
         String value = source.substring(start + 1, current - 1);
-        addToken(STRING, value);
+        addToken(STRING, Interner.intern(value));
 
     }
 
@@ -273,6 +276,7 @@ public class Scanner {
     private void addToken(TokenType type, Object literal) {
 
         String text = source.substring(start, current);
+        if(type == IDENTIFIER) text = Interner.intern(text);
         tokens.add(new Token(type, text, literal, line));
 
     }
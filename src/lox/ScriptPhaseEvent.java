@@ -0,0 +1,24 @@
+package lox;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("lox.ScriptPhase")
+@Label("Script Phase")
+@Category("Lox")
+@Description("Time spent scanning, parsing, resolving or executing a script")
+class ScriptPhaseEvent extends Event {
+
+    @Label("Phase")
+    final String phase;
+
+    ScriptPhaseEvent(String phase) {
+
+        this.phase = phase;
+
+    }
+
+}
@@ -0,0 +1,29 @@
+package lox;
+
+import java.time.Duration;
+
+public class ScriptRequest {
+
+    final String source;
+    final String input;
+    final long maxSteps;
+    final Duration timeout;
+    final long maxHeapBytes;
+
+    public ScriptRequest(String source, String input, long maxSteps, Duration timeout) {
+
+        this(source, input, maxSteps, timeout, 0);
+
+    }
+
+    public ScriptRequest(String source, String input, long maxSteps, Duration timeout, long maxHeapBytes) {
+
+        this.source = source;
+        this.input = input == null ? "" : input;
+        this.maxSteps = maxSteps;
+        this.timeout = timeout;
+        this.maxHeapBytes = maxHeapBytes;
+
+    }
+
+}
@@ -0,0 +1,21 @@
+package lox;
+
+import java.util.List;
+
+public class ScriptResult {
+
+    public final boolean success;
+    public final String output;
+    public final List<LoxError> errors;
+    public final long elapsedNanos;
+
+    ScriptResult(boolean success, String output, List<LoxError> errors, long elapsedNanos) {
+
+        this.success = success;
+        this.output = output;
+        this.errors = errors;
+        this.elapsedNanos = elapsedNanos;
+
+    }
+
+}
@@ -0,0 +1,81 @@
+package lox;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+// Runs every request on its own virtual thread with a fresh LoxContext. At most maxConcurrent scripts execute
+// at once, the rest wait parked on the semaphore in arrival order. Without virtual threads requests queue for a
+// pool of maxConcurrent platform threads instead, so waiting requests don't hold a thread and its stack.
+public class ScriptService implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+
+    public ScriptService(int maxConcurrent) {
+
+        executor = VirtualThreads.newExecutor(maxConcurrent);
+        permits = new Semaphore(maxConcurrent, true);
+
+    }
+
+    public CompletableFuture<ScriptResult> submit(ScriptRequest request) {
+
+        CompletableFuture<ScriptResult> result = new CompletableFuture<>();
+
+        executor.execute(() -> {
+
+            try {
+
+                permits.acquire();
+
+                try {
+
+                    result.complete(evaluate(request, result));
+
+                } finally {
+
+                    permits.release();
+
+                }
+
+            } catch (Throwable error) {
+
+                result.completeExceptionally(error);
+
+            }
+
+        });
+
+        return result;
+
+    }
+
+    private ScriptResult evaluate(ScriptRequest request, CompletableFuture<ScriptResult> result) {
+
+        long start = System.nanoTime();
+        StringWriter output = new StringWriter();
+        LoxContext context = new LoxContext(new StringReader(request.input), output, null);
+        context.limit(request.maxSteps, request.timeout);
+        context.limitHeap(request.maxHeapBytes);
+        context.denyFileAccess();
+        result.whenComplete((value, error) -> {
+
+            if(result.isCancelled()) context.interrupt();
+
+        });
+        boolean success = context.run(request.source);
+        return new ScriptResult(success, output.toString(), context.errors(), System.nanoTime() - start);
+
+    }
+
+    @Override
+    public void close() {
+
+        executor.shutdown();
+
+    }
+
+}
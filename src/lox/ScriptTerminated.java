@@ -0,0 +1,12 @@
+package lox;
+
+// Raised when a script runs out of steps or time, or another thread interrupts it.
+public class ScriptTerminated extends RuntimeError {
+
+    ScriptTerminated(int line, String message) {
+
+        super(line, message);
+
+    }
+
+}
@@ -5,6 +5,9 @@ import java.util.List;
 
 abstract class Stmt {
 
+    int line;
+    int id;
+
     abstract <T> T accept(Visitor<T> visitor);
 
     interface Visitor<T> {
@@ -15,8 +18,10 @@ abstract class Stmt {
         T visitBlockStmt(Block stmt);
         T visitIfStmt(If stmt);
         T visitWhileStmt(While stmt);
+        T visitForInStmt(ForIn stmt);
         T visitFunctionStmt(Function stmt);
         T visitReturnStmt(Return stmt);
+        T visitYieldStmt(Yield stmt);
         T visitClassStmt(Class stmt);
 
     }
@@ -143,17 +148,44 @@ abstract class Stmt {
 
     }
 
+    static class ForIn extends Stmt {
+
+        final Token name;
+        final Expr iterable;
+        final Stmt body;
+
+        ForIn (Token name, Expr iterable, Stmt body) {
+
+            this.name = name;
+            this.iterable = iterable;
+            this.body = body;
+
+        }
+
+        @Override
+        <T> T accept(Visitor<T> visitor) {
+
+            return visitor.visitForInStmt(this);
+
+        }
+
+    }
+
     static class Function extends Stmt {
 
         final Token name;
         final List<Token> params;
         final List<Stmt> body;
+        final boolean generator;
+        boolean pooled;
+        List<String> globals;
 
-        Function (Token name, List<Token> params, List<Stmt> body) {
+        Function (Token name, List<Token> params, List<Stmt> body, boolean generator) {
 
             this.name = name;
             this.params = params;
             this.body = body;
+            this.generator = generator;
 
         }
 
@@ -187,6 +219,27 @@ abstract class Stmt {
 
     }
 
+    static class Yield extends Stmt {
+
+        final Token keyword;
+        final Expr value;
+
+        Yield (Token keyword, Expr value) {
+
+            this.keyword = keyword;
+            this.value = value;
+
+        }
+
+        @Override
+        <T> T accept(Visitor<T> visitor) {
+
+            return visitor.visitYieldStmt(this);
+
+        }
+
+    }
+
     static class Class extends Stmt {
 
         final Token name;
@@ -15,6 +15,6 @@ public enum TokenType {
 
     // Keywords
     AND, CLASS, ELSE, FALSE, FUN, FOR, IF, NIL, OR, PRINT, RETURN,
-    SUPER, THIS, TRUE, VAR, WHILE, EOF
+    SUPER, THIS, TRUE, VAR, WHILE, YIELD, EOF
 
 }
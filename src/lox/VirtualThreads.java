@@ -0,0 +1,44 @@
+package lox;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+class VirtualThreads {
+
+    private static final long STACK_BYTES = 64L << 20;
+
+    static ExecutorService newExecutor() {
+
+        return newExecutor(0);
+
+    }
+
+    // Looked up reflectively so the interpreter still builds and runs on JDKs without virtual threads. Platform
+    // threads are expensive with stacks this big, a positive maxThreads caps them and queues the rest of the work.
+    static ExecutorService newExecutor(int maxThreads) {
+
+        try {
+
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+
+        } catch (ReflectiveOperationException error) {
+
+            ThreadFactory factory = runnable -> {
+
+                Thread thread = new Thread(null, runnable, "lox-worker", STACK_BYTES);
+                thread.setDaemon(true);
+                return thread;
+
+            };
+
+            if(maxThreads > 0) return Executors.newFixedThreadPool(maxThreads, factory);
+            return Executors.newCachedThreadPool(factory);
+
+        }
+
+    }
+
+}
@@ -19,7 +19,7 @@ public class GenerateAst {
 
         String outputDir = args[0];
 
-        defineAst(outputDir, "Expr", Arrays.asList(
+        defineAst(outputDir, "Expr", Arrays.asList("int depth = -1"), Arrays.asList(
                 "Binary   : Expr left, Token operator, Expr right",
                 "Grouping : Expr expression",
                 "Literal  : Object value",
@@ -34,21 +34,23 @@ public class GenerateAst {
                 "Super    : Token keyword, Token method"
         ));
 
-        defineAst(outputDir, "Stmt", Arrays.asList(
+        defineAst(outputDir, "Stmt", Arrays.asList("int line", "int id"), Arrays.asList(
                 "Expression : Expr expression",
                 "Print      : Expr expression",
                 "Var        : Token name, Expr initializer",
                 "Block      : List<Stmt> statements",
                 "If         : Expr condition, Stmt thenBranch, Stmt elseBranch",
                 "While      : Expr condition, Stmt body",
-                "Function   : Token name, List<Token> params, List<Stmt> body",
+                "ForIn      : Token name, Expr iterable, Stmt body",
+                "Function   : Token name, List<Token> params, List<Stmt> body, boolean generator | boolean pooled, List<String> globals",
                 "Return     : Token name, Expr initializer",
+                "Yield      : Token keyword, Expr value",
                 "Class      : Token name, Expr.Variable superclass, List<Stmt.Function> methods"
         ));
 
     }
 
-    private static void defineAst(String outputDir, String baseName, List<String> types) throws IOException {
+    private static void defineAst(String outputDir, String baseName, List<String> baseFields, List<String> types) throws IOException {
 
         // Define the base class
         String path = outputDir + "/" + baseName + ".java";
@@ -61,6 +63,15 @@ public class GenerateAst {
         writer.printf("abstract class %s {\n", baseName);
         writer.println();
 
+        // Define the mutable fields shared by every node, the parser and the resolver fill them in
+        for (String field : baseFields) {
+
+            writer.printf("    %s;\n", field);
+
+        }
+
+        if (!baseFields.isEmpty()) writer.println();
+
         // Define the accept method
         writer.println("    abstract <T> T accept(Visitor<T> visitor);");
         writer.println();
@@ -73,8 +84,9 @@ public class GenerateAst {
         for (String type : types) {
 
             String className = type.split(":")[0].trim();
-            String fields = type.split(":")[1].trim();
-            defineType(writer, baseName, className, fields);
+            // Fields after a '|' aren't set by the constructor, the resolver fills them in later
+            String[] fields = type.split(":")[1].split("\\|");
+            defineType(writer, baseName, className, fields[0].trim(), fields.length > 1 ? fields[1].trim() : "");
             writer.println();
 
         }
@@ -101,7 +113,7 @@ public class GenerateAst {
 
     }
 
-    private static void defineType(PrintWriter writer, String baseName, String className, String fieldList) {
+    private static void defineType(PrintWriter writer, String baseName, String className, String fieldList, String mutableFields) {
 
         String[] fields = fieldList.split(", ");
         writer.printf("    static class %s extends %s {\n", className, baseName);
@@ -114,6 +126,16 @@ public class GenerateAst {
 
         }
 
+        if (!mutableFields.isEmpty()) {
+
+            for (String field : mutableFields.split(", ")) {
+
+                writer.printf("        %s;\n", field);
+
+            }
+
+        }
+
         writer.println();
         writer.printf("        %s (%s) {\n", className, fieldList);
         writer.println();